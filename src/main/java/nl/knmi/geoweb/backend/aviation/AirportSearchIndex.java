@@ -0,0 +1,219 @@
+package nl.knmi.geoweb.backend.aviation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Type-ahead index over the airports of the {@link AirportStore}.
+ *
+ * ICAO codes and airport names are kept in prefix tries, names are also split
+ * in trigrams for fuzzy matching. The index is immutable and built once when
+ * the airport file is loaded.
+ */
+public class AirportSearchIndex {
+	private static final int NGRAM_SIZE = 3;
+	private static final double MIN_FUZZY_COVERAGE = 0.6;
+
+	private static final int SCORE_ICAO_EXACT = 1000;
+	private static final int SCORE_ICAO_PREFIX = 800;
+	private static final int SCORE_NAME_PREFIX = 600;
+	private static final int SCORE_WORD_PREFIX = 400;
+	private static final int SCORE_FUZZY = 200;
+
+	private static class TrieNode {
+		private final TreeMap<Character, TrieNode> children = new TreeMap<Character, TrieNode>();
+		private final List<Integer> ids = new ArrayList<Integer>();
+	}
+
+	private static class Hit {
+		private final int id;
+		private final int score;
+
+		private Hit(int id, int score) {
+			this.id = id;
+			this.score = score;
+		}
+	}
+
+	private final List<AirportInfo> airports;
+	private final String[] normalizedNames;
+	private final int[] ngramCounts;
+	private final TrieNode icaoTrie = new TrieNode();
+	private final TrieNode nameTrie = new TrieNode();
+	private final Map<String, List<Integer>> ngramIndex = new HashMap<String, List<Integer>>();
+
+	public AirportSearchIndex(Collection<AirportInfo> airportInfos) {
+		this.airports = new ArrayList<AirportInfo>(airportInfos);
+		Collections.sort(this.airports, Comparator.comparing(AirportInfo::getICAOName));
+		this.normalizedNames = new String[airports.size()];
+		this.ngramCounts = new int[airports.size()];
+
+		for (int id = 0; id < airports.size(); id++) {
+			AirportInfo airport = airports.get(id);
+			insert(icaoTrie, normalize(airport.getICAOName()), id);
+
+			String name = normalize(airport.getName());
+			normalizedNames[id] = name;
+			if (name.isEmpty()) {
+				continue;
+			}
+			insert(nameTrie, name, id);
+			for (String word : name.split(" ")) {
+				if (!word.equals(name)) {
+					insert(nameTrie, word, id);
+				}
+			}
+			List<String> grams = ngrams(name);
+			ngramCounts[id] = grams.size();
+			for (String gram : grams) {
+				ngramIndex.computeIfAbsent(gram, k -> new ArrayList<Integer>()).add(id);
+			}
+		}
+	}
+
+	public int size() {
+		return airports.size();
+	}
+
+	/**
+	 * Finds airports matching the query, best match first.
+	 *
+	 * Exact ICAO codes rank first, followed by ICAO prefixes, name prefixes, word
+	 * prefixes within the name and finally fuzzy (trigram) name matches. Equal
+	 * ranks are ordered by ICAO code.
+	 *
+	 * @param query
+	 *            (partial) ICAO code or airport name
+	 * @param limit
+	 *            maximum number of results
+	 * @return at most limit matching airports
+	 */
+	public List<AirportInfo> search(String query, int limit) {
+		List<AirportInfo> results = new ArrayList<AirportInfo>();
+		String q = normalize(query);
+		if (q.isEmpty() || limit <= 0) {
+			return results;
+		}
+
+		Map<Integer, Integer> scores = new HashMap<Integer, Integer>();
+
+		// ICAO ids are collected in alphabetical order, so the first ones found are
+		// the best ranked
+		Set<Integer> icaoIds = new LinkedHashSet<Integer>();
+		collect(find(icaoTrie, q), icaoIds, limit);
+		for (int id : icaoIds) {
+			boolean exact = q.equals(normalize(airports.get(id).getICAOName()));
+			scores.put(id, exact ? SCORE_ICAO_EXACT : SCORE_ICAO_PREFIX);
+		}
+
+		Set<Integer> nameIds = new LinkedHashSet<Integer>();
+		collect(find(nameTrie, q), nameIds, Integer.MAX_VALUE);
+		for (int id : nameIds) {
+			int score = normalizedNames[id].startsWith(q) ? SCORE_NAME_PREFIX : SCORE_WORD_PREFIX;
+			scores.merge(id, score, Math::max);
+		}
+
+		if (scores.size() < limit && q.length() >= NGRAM_SIZE) {
+			addFuzzyMatches(q, scores);
+		}
+
+		PriorityQueue<Hit> best = new PriorityQueue<Hit>(limit + 1,
+				Comparator.<Hit> comparingInt(h -> h.score).thenComparing(h -> -h.id));
+		for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+			best.add(new Hit(entry.getKey(), entry.getValue()));
+			if (best.size() > limit) {
+				best.poll();
+			}
+		}
+		while (!best.isEmpty()) {
+			results.add(airports.get(best.poll().id));
+		}
+		Collections.reverse(results);
+		return results;
+	}
+
+	private void addFuzzyMatches(String q, Map<Integer, Integer> scores) {
+		List<String> queryGrams = ngrams(q);
+		int[] common = new int[airports.size()];
+		List<Integer> touched = new ArrayList<Integer>();
+		for (String gram : queryGrams) {
+			List<Integer> postings = ngramIndex.get(gram);
+			if (postings == null) {
+				continue;
+			}
+			for (int id : postings) {
+				if (common[id]++ == 0) {
+					touched.add(id);
+				}
+			}
+		}
+		for (int id : touched) {
+			// Mostly rank on how much of the query is found in the name, the Dice
+			// coefficient prefers the shorter of two names covering the query equally
+			double coverage = (double) common[id] / queryGrams.size();
+			if (coverage < MIN_FUZZY_COVERAGE) {
+				continue;
+			}
+			double dice = 2.0 * common[id] / (queryGrams.size() + ngramCounts[id]);
+			scores.merge(id, (int) Math.round(SCORE_FUZZY * (0.75 * coverage + 0.25 * dice)), Math::max);
+		}
+	}
+
+	private static void insert(TrieNode root, String key, int id) {
+		TrieNode node = root;
+		for (int i = 0; i < key.length(); i++) {
+			node = node.children.computeIfAbsent(key.charAt(i), c -> new TrieNode());
+		}
+		if (!node.ids.contains(id)) {
+			node.ids.add(id);
+		}
+	}
+
+	private static TrieNode find(TrieNode root, String prefix) {
+		TrieNode node = root;
+		for (int i = 0; i < prefix.length() && node != null; i++) {
+			node = node.children.get(prefix.charAt(i));
+		}
+		return node;
+	}
+
+	private static void collect(TrieNode node, Set<Integer> ids, int max) {
+		if (node == null || ids.size() >= max) {
+			return;
+		}
+		for (int id : node.ids) {
+			if (ids.size() >= max) {
+				return;
+			}
+			ids.add(id);
+		}
+		for (TrieNode child : node.children.values()) {
+			collect(child, ids, max);
+		}
+	}
+
+	private static List<String> ngrams(String s) {
+		List<String> grams = new ArrayList<String>();
+		String padded = " " + s + " ";
+		for (int i = 0; i + NGRAM_SIZE <= padded.length(); i++) {
+			grams.add(padded.substring(i, i + NGRAM_SIZE));
+		}
+		return grams;
+	}
+
+	static String normalize(String s) {
+		if (s == null) {
+			return "";
+		}
+		return s.toUpperCase().replaceAll("[^A-Z0-9]+", " ").trim();
+	}
+}
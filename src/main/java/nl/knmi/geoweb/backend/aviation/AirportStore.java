@@ -3,7 +3,9 @@ package nl.knmi.geoweb.backend.aviation;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.NotDirectoryException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,7 +30,9 @@ public class AirportStore {
 
 	private String airportFile;
 	private String directory;
-	private Map<String, AirportInfo> airportInfos;
+	// Both published by initStore once they are complete, the index last
+	private volatile Map<String, AirportInfo> airportInfos;
+	private volatile AirportSearchIndex searchIndex;
 	public AirportStore(@Value(value = "${productstorelocation}") String productstorelocation) throws IOException{
 		String dir = productstorelocation +"/admin/config";
 		File f = new File(dir);
@@ -44,8 +48,8 @@ public class AirportStore {
 		this.airportFile="BREM_20160310.json";
 	}
 
-	public void initStore() throws IOException {
-		this.airportInfos=new HashMap<String,AirportInfo>();
+	public synchronized void initStore() throws IOException {
+		Map<String, AirportInfo> airportInfos=new HashMap<String,AirportInfo>();
 		File fn=new File(this.directory+"/"+this.airportFile);
 		Debug.println("fn:"+fn);
 		if (fn.exists()&&fn.isFile()) {
@@ -72,16 +76,37 @@ public class AirportStore {
 			e.printStackTrace();
 		}
 		Debug.println("Found "+airportInfos.size()+" records of airportinfo");
+		AirportSearchIndex searchIndex=new AirportSearchIndex(airportInfos.values());
+		this.airportInfos=airportInfos;
+		this.searchIndex=searchIndex;
 	}
 
-	public AirportInfo lookup(String ICAO) {
-		if (airportInfos==null) {
-			try {
-				initStore();
-			} catch (IOException e) {
-				return null;
+	/* Initializes the store once, for the first of the concurrent callers */
+	private void ensureInitialized() throws IOException {
+		if (searchIndex==null) {
+			synchronized (this) {
+				if (searchIndex==null) {
+					initStore();
+				}
 			}
 		}
+	}
+
+	public AirportInfo lookup(String ICAO) {
+		try {
+			ensureInitialized();
+		} catch (IOException e) {
+			return null;
+		}
 		return airportInfos.get(ICAO);
 	}
+
+	public List<AirportInfo> search(String query, int limit) {
+		try {
+			ensureInitialized();
+		} catch (IOException e) {
+			return new ArrayList<AirportInfo>();
+		}
+		return searchIndex.search(query, limit);
+	}
 }
@@ -171,19 +171,22 @@ public class FIRStore implements Cloneable {
 		}
 		Feature feature = null;
 		if (simplifiedFIRInfos.containsKey(name)) {
-			feature = cloneThroughSerialize(simplifiedFIRInfos.get(name));
+			feature = simplifiedFIRInfos.get(name);
 		} else if (worldFIRInfos.containsKey(name)) {
-			feature = cloneThroughSerialize(worldFIRInfos.get(name));
+			feature = worldFIRInfos.get(name);
 		}
 		// Debug.println("Feature lookup("+name+") "+feature+"
 		// ["+delegatedAirspaces.containsKey(name)+"]");
 
 		if (delegatedAirspaces.containsKey(name)) {
-			for (Feature f : delegatedAirspaces.get(name)) {
-				// Merge f with feature
-				// Debug.println("Adding delegated area for "+name);
-				feature = GeoUtils.merge(feature, f);
-			}
+			// Merge all delegated areas with the FIR at once, merging creates a new
+			// feature so the stored one does not need to be cloned
+			List<Feature> parts = new ArrayList<Feature>();
+			parts.add(feature);
+			parts.addAll(delegatedAirspaces.get(name));
+			feature = GeoUtils.merge(parts);
+		} else if (feature != null) {
+			feature = cloneThroughSerialize(feature);
 		}
 
 		return feature;
@@ -0,0 +1,180 @@
+package nl.knmi.geoweb.backend.product;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+/**
+ * Bounded LRU cache of validation results, keyed by the content of the
+ * validated product and the version of the rules it was validated against.
+ *
+ * The content key is a SHA-256 hash of the product json with the fields of
+ * every object in sorted order, so the same product gives the same key however
+ * its json was written. The cache is bounded by number of entries and by the
+ * estimated size of the cached results. Results are copied going in and
+ * coming out, so callers are free to change the result they get.
+ */
+public class ValidationResultCache<R> {
+	private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+	private static class Entry<R> {
+		private final R result;
+		private final long bytes;
+
+		private Entry(R result, long bytes) {
+			this.result = result;
+			this.bytes = bytes;
+		}
+	}
+
+	private final int maxEntries;
+	private final long maxBytes;
+	private final UnaryOperator<R> copier;
+	private final ToLongFunction<R> weigher;
+	private final LinkedHashMap<String, Entry<R>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long bytes = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * @param copier
+	 *            makes an independent copy of a result
+	 * @param weigher
+	 *            estimates the size in bytes of a result
+	 */
+	public ValidationResultCache(int maxEntries, long maxBytes, UnaryOperator<R> copier, ToLongFunction<R> weigher) {
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		this.copier = copier;
+		this.weigher = weigher;
+	}
+
+	/**
+	 * @return the cache key of the given product json for the given version of
+	 *         the validation rules
+	 */
+	public static String key(String version, JsonNode node) {
+		StringBuilder sb = new StringBuilder();
+		appendCanonical(sb, node);
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] hash = digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+			return version + "/" + Base64.getEncoder().encodeToString(hash);
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return the cache key of the given product json, for validation rules that
+	 *         do not change while running
+	 */
+	public static String key(JsonNode node) {
+		return key("", node);
+	}
+
+	private static void appendCanonical(StringBuilder sb, JsonNode node) {
+		if (node.isObject()) {
+			List<String> fieldNames = new ArrayList<>(node.size());
+			node.fieldNames().forEachRemaining(fieldNames::add);
+			Collections.sort(fieldNames);
+			sb.append('{');
+			for (int i = 0; i < fieldNames.size(); i++) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				sb.append(TextNode.valueOf(fieldNames.get(i)).toString()).append(':');
+				appendCanonical(sb, node.get(fieldNames.get(i)));
+			}
+			sb.append('}');
+		} else if (node.isArray()) {
+			sb.append('[');
+			for (int i = 0; i < node.size(); i++) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				appendCanonical(sb, node.get(i));
+			}
+			sb.append(']');
+		} else {
+			sb.append(node.toString());
+		}
+	}
+
+	/**
+	 * @return a copy of the cached result, or null if there is none
+	 */
+	public R get(String key) {
+		Entry<R> entry;
+		synchronized (this) {
+			entry = entries.get(key);
+			if (entry == null) {
+				misses++;
+				return null;
+			}
+			hits++;
+		}
+		return copier.apply(entry.result);
+	}
+
+	public void put(String key, R result) {
+		R copy = copier.apply(result);
+		long entryBytes = ENTRY_OVERHEAD_BYTES + 2L * key.length() + weigher.applyAsLong(copy);
+		if (entryBytes > maxBytes) {
+			return;
+		}
+		synchronized (this) {
+			Entry<R> previous = entries.put(key, new Entry<>(copy, entryBytes));
+			if (previous != null) {
+				bytes -= previous.bytes;
+			}
+			bytes += entryBytes;
+			Iterator<Map.Entry<String, Entry<R>>> eldest = entries.entrySet().iterator();
+			while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+				bytes -= eldest.next().getValue().bytes;
+				eldest.remove();
+				evictions++;
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getEstimatedBytes() {
+		return bytes;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+}
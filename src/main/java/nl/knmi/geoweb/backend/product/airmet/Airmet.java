@@ -25,6 +25,7 @@ import org.geojson.FeatureCollection;
 import org.geojson.GeoJsonObject;
 import org.geojson.Polygon;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import nl.knmi.adaguc.tools.Debug;
@@ -33,6 +34,7 @@ import nl.knmi.adaguc.tools.Tools;
 import nl.knmi.geoweb.backend.product.GeoWebProduct;
 import nl.knmi.geoweb.backend.product.IExportable;
 import nl.knmi.geoweb.backend.product.ProductConverter;
+import nl.knmi.geoweb.backend.product.sigmetairmet.FeatureIndex;
 import nl.knmi.geoweb.backend.product.sigmetairmet.ObsFc;
 import nl.knmi.geoweb.backend.product.sigmetairmet.SigmetAirmetChange;
 import nl.knmi.geoweb.backend.product.sigmetairmet.SigmetAirmetLevel;
@@ -82,6 +84,26 @@ public class Airmet implements GeoWebProduct, IExportable<Airmet> {
     @JsonIgnore
     private Feature firFeature;
 
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private FeatureIndex featureIndex;
+
+    /**
+     * Returns the index over the features of the geojson, (re)building it when
+     * the geojson was replaced or its features were added or removed directly.
+     */
+    private FeatureIndex featureIndex() {
+        if (featureIndex == null || !featureIndex.isFor(this.geojson)) {
+            featureIndex = FeatureIndex.of(this.geojson);
+        }
+        return featureIndex;
+    }
+
+    public GeoJsonObject extractSingleStartGeometry() {
+        return SigmetAirmetUtils.extractSingleStartGeometry(featureIndex());
+    }
+
     private String obscuringToTAC() {
         if (this.obscuring != null && this.obscuring.size() > 0) {
             ObscuringPhenomenonList.ObscuringPhenomenon obscuring = this.obscuring.get(0);
@@ -351,7 +373,7 @@ public class Airmet implements GeoWebProduct, IExportable<Airmet> {
 	}
 
 	public String toTAC(Feature FIR) {
-        GeoJsonObject effectiveStartGeometry = SigmetAirmetUtils.findStartGeometry(this.geojson);
+        GeoJsonObject effectiveStartGeometry = SigmetAirmetUtils.findStartGeometry(featureIndex());
         if ((effectiveStartGeometry == null)
                 || (((Feature) effectiveStartGeometry).getProperty("selectionType") == null)) {
             return "Missing geometry";
@@ -359,7 +381,7 @@ public class Airmet implements GeoWebProduct, IExportable<Airmet> {
         if (!((Feature) effectiveStartGeometry).getProperty("selectionType").equals("box")
                 && !((Feature) effectiveStartGeometry).getProperty("selectionType").equals("fir")
                 && !((Feature) effectiveStartGeometry).getProperty("selectionType").equals("point")) {
-            GeoJsonObject intersected = SigmetAirmetUtils.extractSingleStartGeometry(this.geojson);
+            GeoJsonObject intersected = SigmetAirmetUtils.extractSingleStartGeometry(featureIndex());
             int sz = ((Polygon) ((Feature) intersected).getGeometry()).getCoordinates().get(0).size();
             if (sz <= 7) {
                 effectiveStartGeometry = intersected; // Use intersection result
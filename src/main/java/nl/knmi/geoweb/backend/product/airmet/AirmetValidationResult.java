@@ -24,4 +24,8 @@ public class AirmetValidationResult {
 		this.errors=errors;
 	}
 
+    public AirmetValidationResult copy() {
+        return new AirmetValidationResult(succeeded, errors == null ? null : errors.deepCopy());
+    }
+
 }
\ No newline at end of file
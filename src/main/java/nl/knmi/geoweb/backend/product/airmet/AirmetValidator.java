@@ -8,10 +8,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 
+import lombok.Getter;
+import nl.knmi.geoweb.backend.product.ValidationResultCache;
 import nl.knmi.geoweb.backend.product.airmet.Airmet;
 import nl.knmi.geoweb.backend.product.airmet.AirmetValidationResult;
 
@@ -21,6 +24,13 @@ public class AirmetValidator {
     @Qualifier("airmetObjectMapper")
     private ObjectMapper objectMapper;
 
+    private static final int RESULT_CACHE_ENTRIES = 1000;
+    private static final long RESULT_CACHE_BYTES = 8L * 1024 * 1024;
+
+    @Getter
+    private final ValidationResultCache<AirmetValidationResult> resultCache = new ValidationResultCache<>(
+            RESULT_CACHE_ENTRIES, RESULT_CACHE_BYTES, AirmetValidationResult::copy, AirmetValidator::estimateBytes);
+
     public AirmetValidator(ObjectMapper om) throws IOException {
         this.objectMapper=om;
     }
@@ -31,16 +41,41 @@ public class AirmetValidator {
     }
 
     public AirmetValidationResult validate(String sigmetStr)throws ProcessingException, JSONException, IOException, ParseException {
+        JsonNode jsonNode;
+        try {
+            jsonNode = objectMapper.readTree(sigmetStr);
+        } catch (Exception e) {
+            jsonNode = null;
+        }
+        if (jsonNode == null) {
+            return tacFailure();
+        }
+        String cacheKey = ValidationResultCache.key(jsonNode);
+        AirmetValidationResult cached = resultCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
         /* Check if we can make a TAC */
+		AirmetValidationResult result;
 		try{
-			objectMapper.readValue(sigmetStr, Airmet.class).toTAC();
+			objectMapper.treeToValue(jsonNode, Airmet.class).toTAC();
+			result = new AirmetValidationResult(true); //TODO: now always OK
 		}catch(Exception e){
 			//			Debug.printStackTrace(e);
-			ObjectMapper om = new ObjectMapper();
-			return new AirmetValidationResult(false,
-					(ObjectNode) om.readTree("{\"/airmet/message\": [\"Unable to generate TAC report\"]}"));
+			result = tacFailure();
 		}
+		resultCache.put(cacheKey, result);
+		return result;
+    }
+
+    private AirmetValidationResult tacFailure() throws IOException {
+        ObjectMapper om = new ObjectMapper();
+        return new AirmetValidationResult(false,
+                (ObjectNode) om.readTree("{\"/airmet/message\": [\"Unable to generate TAC report\"]}"));
+    }
 
-        return new AirmetValidationResult(true); //TODO: now always OK
+    private static long estimateBytes(AirmetValidationResult result) {
+        return result.getErrors() == null ? 0 : 2L * result.getErrors().toString().length();
     }
 }
@@ -7,9 +7,7 @@ import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -32,6 +30,7 @@ import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import nl.knmi.adaguc.tools.Debug;
@@ -39,6 +38,8 @@ import nl.knmi.adaguc.tools.Tools;
 import nl.knmi.geoweb.backend.product.GeoWebProduct;
 import nl.knmi.geoweb.backend.product.IExportable;
 import nl.knmi.geoweb.backend.product.ProductConverter;
+import nl.knmi.geoweb.backend.product.sigmetairmet.FeatureIndex;
+import nl.knmi.geoweb.backend.product.sigmetairmet.LatLonEncoder;
 import nl.knmi.geoweb.backend.product.sigmetairmet.ObsFc;
 import nl.knmi.geoweb.backend.product.sigmetairmet.SigmetAirmetChange;
 import nl.knmi.geoweb.backend.product.sigmetairmet.SigmetAirmetLevel;
@@ -95,6 +96,11 @@ public class Sigmet implements GeoWebProduct, IExportable<Sigmet>{
 	@JsonIgnore
 	private Feature firFeature;
 
+	@JsonIgnore
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private FeatureIndex featureIndex;
+
 	@Getter
 	public static class VAExtraFields {
 		/* https://www.icao.int/APAC/Documents/edocs/WV-SIGMET.pdf */
@@ -273,58 +279,27 @@ public class Sigmet implements GeoWebProduct, IExportable<Sigmet>{
 	}
 
 	public static String convertLat(double lat) {
-		String latDM = "";
-		if (lat < 0) {
-			latDM = "S";
-			lat = Math.abs(lat);
-		} else {
-			latDM = "N";
-		}
-		int degrees = (int)Math.floor(lat);
-		latDM += String.format("%02d", degrees);
-		double fracPart = lat - degrees;
-		int minutes = (int)Math.round(fracPart * 60.0);
-		latDM += String.format("%02d", minutes);
-		return latDM;
+		return LatLonEncoder.lat(lat);
 	}
 
 	public static String convertLon(double lon) {
-		String lonDM = "";
-		if (lon < 0) {
-			lonDM = "W";
-			lon = Math.abs(lon);
-		} else {
-			lonDM = "E";
-		}
-		int degreesLon = (int)Math.floor(lon);
-		lonDM += String.format("%03d", degreesLon);
-		double fracPartLon = lon - degreesLon;
-		int minutesLon = (int)Math.round(fracPartLon * 60.0);
-		lonDM += String.format("%02d", minutesLon);
-		return lonDM;
+		return LatLonEncoder.lon(lon);
 	}
 
 	public String pointToDMSString(LngLatAlt lnglat) {
-		double lon = lnglat.getLongitude();
-		double lat = lnglat.getLatitude();
-
-		return Sigmet.convertLat(lat) + " " + Sigmet.convertLon(lon);
+		return LatLonEncoder.appendPoint(new StringBuilder(12), lnglat.getLongitude(), lnglat.getLatitude()).toString();
 	}
 
 	public String pointToDMSString(Coordinate coord) {
-		double lon = coord.getOrdinate(Coordinate.X);
-		double lat = coord.getOrdinate(Coordinate.Y);
-
-		return Sigmet.convertLat(lat) + " " + Sigmet.convertLon(lon);
+		return LatLonEncoder.appendPoint(new StringBuilder(12), coord.x, coord.y).toString();
 	}
 
 	public String latlonToDMS(List<LngLatAlt> coords) {
-		return coords.stream().map(lnglat -> this.pointToDMSString(lnglat)).collect(Collectors.joining(" - "));
+		return LatLonEncoder.appendPoints(new StringBuilder(coords.size() * 15), coords).toString();
 	}
 
 	public String latlonToDMS(Coordinate[] coords) {
-		Arrays.stream(coords);
-		return Arrays.stream(coords).map(coord -> this.pointToDMSString(coord)).collect(Collectors.joining(" - "));
+		return LatLonEncoder.appendPoints(new StringBuilder(coords.length * 15), coords).toString();
 	}
 
 	public String toTAC() {
@@ -335,14 +310,14 @@ public class Sigmet implements GeoWebProduct, IExportable<Sigmet>{
 	}
 
 	public String toTAC(Feature FIR) {
-		GeoJsonObject effectiveStartGeometry = SigmetAirmetUtils.findStartGeometry(this.geojson);
+		GeoJsonObject effectiveStartGeometry = SigmetAirmetUtils.findStartGeometry(featureIndex());
 		if ((effectiveStartGeometry==null)||(((Feature)effectiveStartGeometry).getProperty("selectionType")==null)) {
 			return "Missing geometry";
 		}
 		if (!((Feature)effectiveStartGeometry).getProperty("selectionType").equals("box")&&
 				!((Feature)effectiveStartGeometry).getProperty("selectionType").equals("fir")&&
 				!((Feature)effectiveStartGeometry).getProperty("selectionType").equals("point")) {
-			GeoJsonObject intersected= SigmetAirmetUtils.extractSingleStartGeometry(this.geojson);
+			GeoJsonObject intersected= SigmetAirmetUtils.extractSingleStartGeometry(featureIndex());
 			int sz=((Polygon)((Feature)intersected).getGeometry()).getCoordinates().get(0).size();
 			if (sz<=7)  {
 				effectiveStartGeometry = intersected; // Use intersection result
@@ -430,7 +405,7 @@ public class Sigmet implements GeoWebProduct, IExportable<Sigmet>{
 			OffsetDateTime fpaTime=this.validdate_end;
 			sb.append("FCST AT ").append(String.format("%02d", fpaTime.getHour())).append(String.format("%02d", fpaTime.getMinute())).append("Z");
 			sb.append('\n');
-			sb.append(SigmetAirmetUtils.featureToTAC((Feature)this.findEndGeometry(((Feature)SigmetAirmetUtils.findStartGeometry(this.geojson)).getId()), FIR));
+			sb.append(SigmetAirmetUtils.featureToTAC((Feature)this.findEndGeometry(((Feature)SigmetAirmetUtils.findStartGeometry(featureIndex())).getId()), FIR));
 
 		} else {
 			if (va_extra_fields !=null && va_extra_fields.no_va_expected) {
@@ -448,99 +423,73 @@ public class Sigmet implements GeoWebProduct, IExportable<Sigmet>{
 	private static String END="end";
 	private static String INTERSECTION="intersection";
 
-	public List<GeoJsonObject> findIntersectableGeometries() {
-		List<GeoJsonObject>objs=new ArrayList<GeoJsonObject>();
-		FeatureCollection fc=(FeatureCollection)this.geojson;
-		for (Feature f: fc.getFeatures()) {
-			if ((f.getProperty("featureFunction")!=null)&&(f.getProperty("featureFunction").equals(START)||f.getProperty("featureFunction").equals(END))){
-				objs.add(f);
-			}
+	/**
+	 * Returns the index over the features of the geojson, (re)building it when
+	 * the geojson was replaced or its features were added or removed directly.
+	 */
+	private FeatureIndex featureIndex() {
+		if (featureIndex==null||!featureIndex.isFor(this.geojson)) {
+			featureIndex=FeatureIndex.of(this.geojson);
 		}
+		return featureIndex;
+	}
+
+	/**
+	 * Returns the start geometries followed by the end geometries, each in
+	 * document order.
+	 */
+	public List<GeoJsonObject> findIntersectableGeometries() {
+		FeatureIndex index=featureIndex();
+		List<GeoJsonObject>objs=new ArrayList<GeoJsonObject>(index.find(START));
+		objs.addAll(index.find(END));
 		return objs;
 	}
 
 	public List<GeoJsonObject> findEndGeometries() {
-		List<GeoJsonObject>objs=new ArrayList<GeoJsonObject>();
-		FeatureCollection fc=(FeatureCollection)this.geojson;
-		for (Feature f: fc.getFeatures()) {
-			if ((f.getProperty("featureFunction")!=null)&&f.getProperty("featureFunction").equals(END)){
-				objs.add(f);
-			}
-		}
-		return objs;
+		return new ArrayList<GeoJsonObject>(featureIndex().find(END));
 	}
 
 	public GeoJsonObject findEndGeometry(String relatesTo) {
-		FeatureCollection fc=(FeatureCollection)this.geojson;
-		for (Feature f: fc.getFeatures()) {
-			if ((f.getProperty("featureFunction")!=null)&&f.getProperty("featureFunction").equals(END)){
-				if ((f.getProperty("relatesTo")!=null)&&f.getProperty("relatesTo").equals(relatesTo)) {
-					return f;
-				}
-			}
-		}
-		return null;
+		return featureIndex().findRelated(END, relatesTo);
+	}
+
+	public GeoJsonObject extractSingleStartGeometry() {
+		return SigmetAirmetUtils.extractSingleStartGeometry(featureIndex());
 	}
 
 	public GeoJsonObject extractSingleEndGeometry() {
-		FeatureCollection fc=(FeatureCollection)this.geojson;
-		for (Feature f: fc.getFeatures()) {
-			if ((f.getProperty("featureFunction")!=null)&&f.getProperty("featureFunction").equals(END)){
-				for (Feature f2: fc.getFeatures()) {
-					if ((f2.getProperty("featureFunction")!=null)&&f2.getProperty("featureFunction").equals(INTERSECTION)&&f.getId().equals(f2.getProperty("relatesTo"))){
-						return f2;
-					}
-				}
-				return f;
-			}
+		FeatureIndex index=featureIndex();
+		Feature f=index.findFirst(END);
+		if (f==null) {
+			return null;
 		}
-		return null;
+		Feature intersection=index.findRelated(INTERSECTION, f.getId());
+		return (intersection!=null)?intersection:f;
 	}
 
 	public void putIntersectionGeometry(String relatesTo, Feature intersection) {
-		FeatureCollection fc=(FeatureCollection)this.geojson;
+		FeatureIndex index=featureIndex();
 
 		//Remove old intersection for id if it exists
-		List<Feature> toremove=new ArrayList<Feature>();
-		for (Feature f: fc.getFeatures()) {
-			if ((f.getProperty("relatesTo")!=null)&&f.getProperty("relatesTo").equals(relatesTo)){
-				if ((f.getProperty("featureFunction")!=null)&&f.getProperty("featureFunction").equals(INTERSECTION)){
-					toremove.add(f);
-				}
-			}
-		}
-		if (!toremove.isEmpty()) {
-			fc.getFeatures().removeAll(toremove);
-		}
+		index.removeRelated(INTERSECTION, relatesTo);
 		//Add intersection
 		//		intersection.setId(UUID.randomUUID().toString());
 		intersection.setId(relatesTo+"-i");
 		intersection.getProperties().put("relatesTo", relatesTo);
 		intersection.getProperties().put("featureFunction", INTERSECTION);
-		fc.getFeatures().add(intersection);
+		index.add(intersection);
 	}
 
 	public void putEndGeometry(String relatesTo, Feature newFeature) {
-		FeatureCollection fc=(FeatureCollection)this.geojson;
+		FeatureIndex index=featureIndex();
 
 		//Remove old endGeometry for id if it exists
-		List<Feature> toremove=new ArrayList<Feature>();
-		for (Feature f: fc.getFeatures()) {
-			if ((f.getProperty("relatesTo")!=null)&&f.getProperty("relatesTo").equals(relatesTo)){
-				if ((f.getProperty("featureFunction")!=null)&&f.getProperty("featureFunction").equals(END)){
-					toremove.add(f);
-				}
-			}
-		}
-
-		if (!toremove.isEmpty()) {
-			fc.getFeatures().removeAll(toremove);
-		}
+		index.removeRelated(END, relatesTo);
 		//Add intersection
 		//		newFeature.setId(UUID.randomUUID().toString());
 		newFeature.getProperties().put("relatesTo", relatesTo);
 		newFeature.getProperties().put("featureFunction", END);
-		fc.getFeatures().add(newFeature);
+		index.add(newFeature);
 	}
 
 	public List<String>fetchGeometryIds() {
@@ -557,11 +506,9 @@ public class Sigmet implements GeoWebProduct, IExportable<Sigmet>{
 	}
 
 	public void putStartGeometry(Feature newFeature) {
-		FeatureCollection fc=(FeatureCollection)this.geojson;
-
 		//Add intersection
 		newFeature.getProperties().put("featureFunction", START);
-		fc.getFeatures().add(newFeature);
+		featureIndex().add(newFeature);
 	}
 
 	public String dumpSigmetGeometryInfo() {
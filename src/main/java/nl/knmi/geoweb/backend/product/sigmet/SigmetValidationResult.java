@@ -26,4 +26,8 @@ public class SigmetValidationResult {
 		this.errors=errors;
 	}
 
+    public SigmetValidationResult copy() {
+        return new SigmetValidationResult(succeeded, errors == null ? null : errors.deepCopy());
+    }
+
 }
\ No newline at end of file
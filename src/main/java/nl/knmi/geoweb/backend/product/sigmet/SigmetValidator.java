@@ -3,6 +3,7 @@ package nl.knmi.geoweb.backend.product.sigmet;
 import java.io.IOException;
 import java.text.ParseException;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 import org.json.JSONException;
@@ -11,12 +12,22 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import lombok.Getter;
+import nl.knmi.geoweb.backend.product.ValidationResultCache;
+
 @Component
 public class SigmetValidator {
     @Autowired
     @Qualifier("sigmetObjectMapper")
     private ObjectMapper objectMapper;
 
+    private static final int RESULT_CACHE_ENTRIES = 1000;
+    private static final long RESULT_CACHE_BYTES = 8L * 1024 * 1024;
+
+    @Getter
+    private final ValidationResultCache<SigmetValidationResult> resultCache = new ValidationResultCache<>(
+            RESULT_CACHE_ENTRIES, RESULT_CACHE_BYTES, SigmetValidationResult::copy, SigmetValidator::estimateBytes);
+
     public SigmetValidator(ObjectMapper om) throws IOException {
         this.objectMapper=om;
     }
@@ -27,16 +38,41 @@ public class SigmetValidator {
     }
 
     public SigmetValidationResult validate(String sigmetStr)throws ProcessingException, JSONException, IOException, ParseException {
+        JsonNode jsonNode;
+        try {
+            jsonNode = objectMapper.readTree(sigmetStr);
+        } catch (Exception e) {
+            jsonNode = null;
+        }
+        if (jsonNode == null) {
+            return tacFailure();
+        }
+        String cacheKey = ValidationResultCache.key(jsonNode);
+        SigmetValidationResult cached = resultCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
         /* Check if we can make a TAC */
+		SigmetValidationResult result;
 		try{
-			objectMapper.readValue(sigmetStr, Sigmet.class).toTAC();
+			objectMapper.treeToValue(jsonNode, Sigmet.class).toTAC();
+			result = new SigmetValidationResult(true); //TODO: now always OK
 		}catch(Exception e){
 			//			Debug.printStackTrace(e);
-			ObjectMapper om = new ObjectMapper();
-			return new SigmetValidationResult(false,
-					(ObjectNode) om.readTree("{\"/sigmet/message\": [\"Unable to generate TAC report\"]}"));
+			result = tacFailure();
 		}
+		resultCache.put(cacheKey, result);
+		return result;
+    }
+
+    private SigmetValidationResult tacFailure() throws IOException {
+        ObjectMapper om = new ObjectMapper();
+        return new SigmetValidationResult(false,
+                (ObjectNode) om.readTree("{\"/sigmet/message\": [\"Unable to generate TAC report\"]}"));
+    }
 
-        return new SigmetValidationResult(true); //TODO: now always OK
+    private static long estimateBytes(SigmetValidationResult result) {
+        return result.getErrors() == null ? 0 : 2L * result.getErrors().toString().length();
     }
 }
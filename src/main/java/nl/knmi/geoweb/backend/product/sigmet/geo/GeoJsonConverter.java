@@ -0,0 +1,181 @@
+package nl.knmi.geoweb.backend.product.sigmet.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geojson.GeoJsonObject;
+import org.geojson.LngLatAlt;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Converts between org.geojson and JTS geometries by copying the coordinates,
+ * without serializing to and parsing from a GeoJSON string.
+ */
+public class GeoJsonConverter {
+
+	private GeoJsonConverter() {
+	}
+
+	public static Geometry toJts(GeoJsonObject geometry, GeometryFactory gf) {
+		if (geometry == null) {
+			return null;
+		}
+		if (geometry instanceof org.geojson.Point) {
+			LngLatAlt lngLatAlt = ((org.geojson.Point) geometry).getCoordinates();
+			return lngLatAlt == null ? gf.createPoint() : gf.createPoint(toCoordinate(lngLatAlt));
+		}
+		if (geometry instanceof org.geojson.LineString) {
+			return gf.createLineString(toSequence(((org.geojson.LineString) geometry).getCoordinates(), gf));
+		}
+		if (geometry instanceof org.geojson.MultiPoint) {
+			return gf.createMultiPoint(toSequence(((org.geojson.MultiPoint) geometry).getCoordinates(), gf));
+		}
+		if (geometry instanceof org.geojson.Polygon) {
+			return toPolygon(((org.geojson.Polygon) geometry).getCoordinates(), gf);
+		}
+		if (geometry instanceof org.geojson.MultiLineString) {
+			List<List<LngLatAlt>> lines = ((org.geojson.MultiLineString) geometry).getCoordinates();
+			LineString[] lineStrings = new LineString[lines.size()];
+			for (int i = 0; i < lineStrings.length; i++) {
+				lineStrings[i] = gf.createLineString(toSequence(lines.get(i), gf));
+			}
+			return gf.createMultiLineString(lineStrings);
+		}
+		if (geometry instanceof org.geojson.MultiPolygon) {
+			List<List<List<LngLatAlt>>> polygons = ((org.geojson.MultiPolygon) geometry).getCoordinates();
+			Polygon[] jtsPolygons = new Polygon[polygons.size()];
+			for (int i = 0; i < jtsPolygons.length; i++) {
+				jtsPolygons[i] = toPolygon(polygons.get(i), gf);
+			}
+			return gf.createMultiPolygon(jtsPolygons);
+		}
+		if (geometry instanceof org.geojson.GeometryCollection) {
+			List<GeoJsonObject> parts = ((org.geojson.GeometryCollection) geometry).getGeometries();
+			Geometry[] geometries = new Geometry[parts.size()];
+			for (int i = 0; i < geometries.length; i++) {
+				geometries[i] = toJts(parts.get(i), gf);
+			}
+			return gf.createGeometryCollection(geometries);
+		}
+		throw new IllegalArgumentException("Unsupported GeoJSON geometry " + geometry.getClass().getSimpleName());
+	}
+
+	public static GeoJsonObject toGeoJson(Geometry geometry) {
+		if (geometry == null) {
+			return null;
+		}
+		if (geometry instanceof Point) {
+			CoordinateSequence seq = ((Point) geometry).getCoordinateSequence();
+			org.geojson.Point point = new org.geojson.Point();
+			if (seq.size() > 0) {
+				point.setCoordinates(toLngLatAlt(seq, 0));
+			}
+			return point;
+		}
+		if (geometry instanceof LineString) {
+			org.geojson.LineString lineString = new org.geojson.LineString();
+			lineString.setCoordinates(toLngLatAlts(((LineString) geometry).getCoordinateSequence()));
+			return lineString;
+		}
+		if (geometry instanceof Polygon) {
+			org.geojson.Polygon polygon = new org.geojson.Polygon();
+			polygon.setCoordinates(toRings((Polygon) geometry));
+			return polygon;
+		}
+		if (geometry instanceof MultiPoint) {
+			org.geojson.MultiPoint multiPoint = new org.geojson.MultiPoint();
+			for (int i = 0; i < geometry.getNumGeometries(); i++) {
+				multiPoint.add(toLngLatAlt(((Point) geometry.getGeometryN(i)).getCoordinateSequence(), 0));
+			}
+			return multiPoint;
+		}
+		if (geometry instanceof MultiLineString) {
+			org.geojson.MultiLineString multiLineString = new org.geojson.MultiLineString();
+			for (int i = 0; i < geometry.getNumGeometries(); i++) {
+				multiLineString.add(toLngLatAlts(((LineString) geometry.getGeometryN(i)).getCoordinateSequence()));
+			}
+			return multiLineString;
+		}
+		if (geometry instanceof MultiPolygon) {
+			org.geojson.MultiPolygon multiPolygon = new org.geojson.MultiPolygon();
+			for (int i = 0; i < geometry.getNumGeometries(); i++) {
+				multiPolygon.add(toRings((Polygon) geometry.getGeometryN(i)));
+			}
+			return multiPolygon;
+		}
+		if (geometry instanceof GeometryCollection) {
+			org.geojson.GeometryCollection collection = new org.geojson.GeometryCollection();
+			for (int i = 0; i < geometry.getNumGeometries(); i++) {
+				collection.add(toGeoJson(geometry.getGeometryN(i)));
+			}
+			return collection;
+		}
+		throw new IllegalArgumentException("Unsupported JTS geometry " + geometry.getGeometryType());
+	}
+
+	private static Polygon toPolygon(List<List<LngLatAlt>> rings, GeometryFactory gf) {
+		if (rings.isEmpty()) {
+			return gf.createPolygon();
+		}
+		LinearRing shell = gf.createLinearRing(toSequence(rings.get(0), gf));
+		LinearRing[] holes = new LinearRing[rings.size() - 1];
+		for (int i = 0; i < holes.length; i++) {
+			holes[i] = gf.createLinearRing(toSequence(rings.get(i + 1), gf));
+		}
+		return gf.createPolygon(shell, holes);
+	}
+
+	private static List<List<LngLatAlt>> toRings(Polygon polygon) {
+		List<List<LngLatAlt>> rings = new ArrayList<List<LngLatAlt>>(polygon.getNumInteriorRing() + 1);
+		if (polygon.isEmpty()) {
+			return rings;
+		}
+		rings.add(toLngLatAlts(polygon.getExteriorRing().getCoordinateSequence()));
+		for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+			rings.add(toLngLatAlts(polygon.getInteriorRingN(i).getCoordinateSequence()));
+		}
+		return rings;
+	}
+
+	private static CoordinateSequence toSequence(List<LngLatAlt> lngLatAlts, GeometryFactory gf) {
+		Coordinate[] coords = new Coordinate[lngLatAlts.size()];
+		for (int i = 0; i < coords.length; i++) {
+			coords[i] = toCoordinate(lngLatAlts.get(i));
+		}
+		return gf.getCoordinateSequenceFactory().create(coords);
+	}
+
+	private static Coordinate toCoordinate(LngLatAlt lngLatAlt) {
+		if (lngLatAlt.hasAltitude()) {
+			return new Coordinate(lngLatAlt.getLongitude(), lngLatAlt.getLatitude(), lngLatAlt.getAltitude());
+		}
+		return new Coordinate(lngLatAlt.getLongitude(), lngLatAlt.getLatitude());
+	}
+
+	private static List<LngLatAlt> toLngLatAlts(CoordinateSequence seq) {
+		List<LngLatAlt> lngLatAlts = new ArrayList<LngLatAlt>(seq.size());
+		for (int i = 0; i < seq.size(); i++) {
+			lngLatAlts.add(toLngLatAlt(seq, i));
+		}
+		return lngLatAlts;
+	}
+
+	private static LngLatAlt toLngLatAlt(CoordinateSequence seq, int i) {
+		double z = seq.getDimension() > 2 ? seq.getOrdinate(i, CoordinateSequence.Z) : Double.NaN;
+		if (Double.isNaN(z)) {
+			return new LngLatAlt(seq.getX(i), seq.getY(i));
+		}
+		return new LngLatAlt(seq.getX(i), seq.getY(i), z);
+	}
+}
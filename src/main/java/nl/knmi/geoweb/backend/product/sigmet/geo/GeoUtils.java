@@ -1,7 +1,6 @@
 package nl.knmi.geoweb.backend.product.sigmet.geo;
 
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -15,88 +14,61 @@ import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryCollection;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.PrecisionModel;
-import org.locationtech.jts.io.ParseException;
-import org.locationtech.jts.io.geojson.GeoJsonReader;
-import org.locationtech.jts.io.geojson.GeoJsonWriter;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.locationtech.jts.operation.union.UnaryUnionOp;
 
 import nl.knmi.adaguc.tools.Debug;
 
+/**
+ * Geometry helpers shared by the SIGMET and AIRMET conversions.
+ *
+ * The methods keep no mutable state and can be called from several threads at
+ * once. The only shared object is the GeometryFactory, which is immutable.
+ */
 public class GeoUtils {
 
-	private static GeometryFactory gf;
-	private static ObjectMapper om;
-	private static GeoJsonReader reader;
-	private static GeoJsonWriter writer;
+	private static final GeometryFactory gf=new GeometryFactory(new PrecisionModel(PrecisionModel.FLOATING));
 
-	private static GeometryFactory getGeometryFactory() {
-		if (gf==null) {
-			gf=new GeometryFactory(new PrecisionModel(PrecisionModel.FLOATING));
-		}
+	public static GeometryFactory getGeometryFactory() {
 		return gf;
 	}
-	
-	private static GeoJsonWriter getWriter() {
-		if (writer==null) {
-			writer=new GeoJsonWriter();
-		}
-		return writer;
-	}
-
-	private static GeoJsonReader getReader() {
-		if (reader==null) {
-			reader=new GeoJsonReader(GeoUtils.getGeometryFactory());
-		}
-		return reader;
-	}
-
-	private static ObjectMapper getObjectMapper() {
-		if (om==null) {
-			om=new ObjectMapper();
-		}
-		return om;
-	}
 
 	public static Geometry jsonFeature2jtsGeometry(Feature F)  {
-		try {
-			ObjectMapper om=getObjectMapper();
-			if (F.getGeometry()==null) {
-				return null;
-			}
-			String json=om.writeValueAsString(F.getGeometry());
-			return getReader().read(json);
-		} catch(ParseException | JsonProcessingException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+		if (F.getGeometry()==null) {
+			return null;
 		}
-		return null;
+		return GeoJsonConverter.toJts(F.getGeometry(), getGeometryFactory());
 	}
 
 	public static Feature jtsGeometry2jsonFeature(Geometry g)  {
-		Feature f=null;
-		try {
-			ObjectMapper om=getObjectMapper();
-			String json=getWriter().write(g);
-//			Debug.println(">>>>JSON:"+json);
-			org.geojson.Geometry<Double> geo= om.readValue(json, org.geojson.Geometry.class);
-			f=new Feature();
-			f.setGeometry(geo);
-		} catch(IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
+		Feature f=new Feature();
+		f.setGeometry(GeoJsonConverter.toGeoJson(g));
 		return f;
 	}
 
 	public static Feature merge(Feature f1, Feature f2) {
-		Geometry g1=jsonFeature2jtsGeometry(f1);
-		Geometry g2=jsonFeature2jtsGeometry(f2);
+		return merge(Arrays.asList(f1, f2));
+	}
+
+	/**
+	 * Merges the geometries of all features in one cascaded union. The result is
+	 * oriented counterclockwise.
+	 *
+	 * @param features
+	 *            features to merge, features without geometry are skipped
+	 * @return a new feature holding the merged geometry
+	 */
+	public static Feature merge(List<Feature> features) {
+		List<Geometry> geometries=new ArrayList<Geometry>(features.size());
+		for (Feature feature: features) {
+			Geometry g=feature==null?null:jsonFeature2jtsGeometry(feature);
+			if (g!=null) {
+				geometries.add(g);
+			}
+		}
 
-        Geometry gNew=g1.union(g2);
+		Geometry gNew=UnaryUnionOp.union(geometries, gf);
 		Coordinate[] coords=gNew.getCoordinates();
-		if (!Orientation.isCCW(coords)) {
+		if (coords.length>0 && !Orientation.isCCW(coords)) {
 			gNew=gNew.reverse();
 		}
 		Feature f=jtsGeometry2jsonFeature(gNew);
@@ -0,0 +1,280 @@
+package nl.knmi.geoweb.backend.product.sigmetairmet;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.geojson.Feature;
+import org.geojson.GeoJsonObject;
+import org.geojson.LngLatAlt;
+import org.geojson.MultiPolygon;
+import org.geojson.Polygon;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+
+import nl.knmi.geoweb.backend.product.sigmet.geo.GeoJsonConverter;
+
+/**
+ * Bounded LRU memo of the geometry work done for a box drawn in a FIR.
+ *
+ * The TAC of a SIGMET or AIRMET is regenerated on every edit, while the drawn
+ * box usually stays the same. Entries are keyed by the FIR and the envelope of
+ * the box, so only axis aligned rectangles are cached. Their intersection is
+ * computed from the envelope, so it does not depend on the corner the box was
+ * drawn from.
+ *
+ * A FIR is identified by its ICAO code and a hash of its coordinates, the
+ * entries of the same FIR share one JTS geometry of it.
+ */
+public class BoxIntersectionCache {
+  private static final int MAX_ENTRIES = 128;
+  private static final int MAX_FIRS = 16;
+
+  public static class BoxIntersection {
+    private final boolean[] sidesIntersecting;
+    private final int sidesIntersectingCount;
+    private final Geometry intersection;
+    private final boolean entireFir;
+
+    private BoxIntersection(boolean[] sidesIntersecting, int sidesIntersectingCount, Geometry intersection,
+        boolean entireFir) {
+      this.sidesIntersecting = sidesIntersecting;
+      this.sidesIntersectingCount = sidesIntersectingCount;
+      this.intersection = intersection;
+      this.entireFir = entireFir;
+    }
+
+    public boolean isSideIntersecting(int side) {
+      return sidesIntersecting[side];
+    }
+
+    public int getSidesIntersectingCount() {
+      return sidesIntersectingCount;
+    }
+
+    /**
+     * @return the intersection of the box with the FIR
+     */
+    public Geometry getIntersection() {
+      return intersection;
+    }
+
+    public boolean isEntireFir() {
+      return entireFir;
+    }
+  }
+
+  /* One FIR, its JTS geometry is converted once for all boxes drawn in it */
+  private static class Fir {
+    private final String icaoCode;
+    private final long geometryHash;
+    private final int hash;
+    private Geometry geometry;
+
+    private Fir(String icaoCode, long geometryHash) {
+      this.icaoCode = icaoCode;
+      this.geometryHash = geometryHash;
+      this.hash = Objects.hash(icaoCode, geometryHash);
+    }
+
+    private synchronized Geometry getGeometry(GeoJsonObject firGeometry, GeometryFactory gf) {
+      if (geometry == null) {
+        geometry = GeoJsonConverter.toJts(firGeometry, gf);
+      }
+      return geometry;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (!(o instanceof Fir))
+        return false;
+      Fir other = (Fir) o;
+      return geometryHash == other.geometryHash && Objects.equals(icaoCode, other.icaoCode);
+    }
+  }
+
+  /* The FIR geometry seen last, the same FIR feature is usually passed for all its boxes */
+  private static class LastFir {
+    private final GeoJsonObject firGeometry;
+    private final Fir fir;
+
+    private LastFir(GeoJsonObject firGeometry, Fir fir) {
+      this.firGeometry = firGeometry;
+      this.fir = fir;
+    }
+  }
+
+  private static class Key {
+    // Interned, so compared by reference
+    private final Fir fir;
+    private final double minX;
+    private final double maxX;
+    private final double minY;
+    private final double maxY;
+    private final int hash;
+
+    private Key(Fir fir, Envelope env) {
+      this.fir = fir;
+      this.minX = env.getMinX();
+      this.maxX = env.getMaxX();
+      this.minY = env.getMinY();
+      this.maxY = env.getMaxY();
+      this.hash = Arrays.hashCode(new Object[] { fir, minX, maxX, minY, maxY });
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (!(o instanceof Key))
+        return false;
+      Key other = (Key) o;
+      return hash == other.hash && minX == other.minX && maxX == other.maxX && minY == other.minY
+          && maxY == other.maxY && fir == other.fir;
+    }
+  }
+
+  private static final Map<Fir, Fir> firs = new LinkedHashMap<Fir, Fir>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Fir, Fir> eldest) {
+      return size() > MAX_FIRS;
+    }
+  };
+
+  private static volatile LastFir lastFir;
+
+  private static final Map<Key, BoxIntersection> cache = new LinkedHashMap<Key, BoxIntersection>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, BoxIntersection> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  private BoxIntersectionCache() {
+  }
+
+  /**
+   * Finds which sides of the box intersect the FIR, and the intersection of
+   * the box with the FIR.
+   *
+   * @param drawnCoords
+   *          the corners of the box counterclockwise, starting at lower left,
+   *          with the first corner repeated at the end
+   */
+  public static BoxIntersection get(Feature firFeature, Geometry box, Coordinate[] drawnCoords,
+      GeometryFactory gf) {
+    GeoJsonObject firGeometry = firFeature.getGeometry();
+    if (!box.isRectangle()) {
+      return compute(GeoJsonConverter.toJts(firGeometry, gf), box, drawnCoords, gf);
+    }
+    Fir fir = internFir(firFeature);
+    Envelope envelope = box.getEnvelopeInternal();
+    Key key = new Key(fir, envelope);
+    BoxIntersection result;
+    synchronized (cache) {
+      result = cache.get(key);
+    }
+    if (result == null) {
+      result = compute(fir.getGeometry(firGeometry, gf), gf.toGeometry(envelope), drawnCoords, gf);
+      synchronized (cache) {
+        cache.put(key, result);
+      }
+    }
+    return result;
+  }
+
+  public static void clear() {
+    synchronized (cache) {
+      cache.clear();
+      firs.clear();
+      lastFir = null;
+    }
+  }
+
+  static int size() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  /* Returns the one Fir for the FIR feature, its coordinates are only hashed once per geometry object */
+  private static Fir internFir(Feature firFeature) {
+    GeoJsonObject firGeometry = firFeature.getGeometry();
+    LastFir last = lastFir;
+    if (last != null && last.firGeometry == firGeometry) {
+      return last.fir;
+    }
+    Fir fir = new Fir(firFeature.getProperty("ICAOCODE"), geometryHash(firGeometry));
+    synchronized (cache) {
+      Fir interned = firs.get(fir);
+      if (interned == null) {
+        firs.put(fir, fir);
+      } else {
+        fir = interned;
+      }
+    }
+    lastFir = new LastFir(firGeometry, fir);
+    return fir;
+  }
+
+  private static long geometryHash(GeoJsonObject geometry) {
+    if (geometry instanceof Polygon) {
+      return hashRings(((Polygon) geometry).getCoordinates(), 1);
+    }
+    if (geometry instanceof MultiPolygon) {
+      long hash = 2;
+      for (List<List<LngLatAlt>> polygon : ((MultiPolygon) geometry).getCoordinates()) {
+        hash = hashRings(polygon, hash);
+      }
+      return hash;
+    }
+    return geometry.hashCode();
+  }
+
+  private static long hashRings(List<List<LngLatAlt>> rings, long hash) {
+    for (List<LngLatAlt> ring : rings) {
+      hash = 31 * hash + ring.size();
+      for (LngLatAlt point : ring) {
+        hash = 31 * hash + Double.doubleToLongBits(point.getLongitude());
+        hash = 31 * hash + Double.doubleToLongBits(point.getLatitude());
+      }
+    }
+    return hash;
+  }
+
+  private static BoxIntersection compute(Geometry fir, Geometry box, Coordinate[] drawnCoords,
+      GeometryFactory gf) {
+    boolean[] sidesIntersecting = new boolean[4];
+    int count = 0;
+    for (int i = 0; i < 4; i++) {
+      LineString side = gf.createLineString(Arrays.copyOfRange(drawnCoords, i, i + 2));
+      if (side.intersects(fir)) {
+        sidesIntersecting[i] = true;
+        count++;
+      }
+    }
+    Geometry intersection = box.intersection(fir);
+    return new BoxIntersection(sidesIntersecting, count, intersection, intersection.equalsTopo(fir));
+  }
+}
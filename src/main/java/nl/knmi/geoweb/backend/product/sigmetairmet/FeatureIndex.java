@@ -0,0 +1,137 @@
+package nl.knmi.geoweb.backend.product.sigmetairmet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geojson.Feature;
+import org.geojson.FeatureCollection;
+import org.geojson.GeoJsonObject;
+
+/**
+ * Index over the features of a SIGMET or AIRMET geojson by featureFunction, id
+ * and relatesTo.
+ *
+ * The index belongs to one FeatureCollection. Features added or removed through
+ * the index are added to or removed from the collection as well. Changes made to
+ * the collection directly are noticed when the number of features changes, see
+ * {@link #isFor(GeoJsonObject)}; changing the properties of an indexed feature
+ * in place is not.
+ */
+public class FeatureIndex {
+  private static final String FEATURE_FUNCTION = "featureFunction";
+  private static final String RELATES_TO = "relatesTo";
+
+  private final FeatureCollection fc;
+  private final List<Feature> features;
+  private final Map<String, List<Feature>> byFunction = new HashMap<String, List<Feature>>();
+  private final Map<String, Map<String, List<Feature>>> byFunctionAndRelatesTo = new HashMap<String, Map<String, List<Feature>>>();
+  private final Map<String, Feature> byId = new HashMap<String, Feature>();
+
+  private FeatureIndex(FeatureCollection fc) {
+    this.fc = fc;
+    this.features = fc.getFeatures();
+    for (Feature f : features) {
+      index(f);
+    }
+  }
+
+  public static FeatureIndex of(GeoJsonObject geojson) {
+    return new FeatureIndex((FeatureCollection) geojson);
+  }
+
+  /**
+   * @return true if this index is up to date for the given geojson
+   */
+  public boolean isFor(GeoJsonObject geojson) {
+    return geojson == fc && fc.getFeatures() == features && indexedCount() == features.size();
+  }
+
+  public Feature findFirst(String featureFunction) {
+    List<Feature> found = byFunction.get(featureFunction);
+    return (found == null || found.isEmpty()) ? null : found.get(0);
+  }
+
+  public List<Feature> find(String featureFunction) {
+    List<Feature> found = byFunction.get(featureFunction);
+    return found == null ? Collections.<Feature> emptyList() : Collections.unmodifiableList(found);
+  }
+
+  public Feature findRelated(String featureFunction, String relatesTo) {
+    Map<String, List<Feature>> related = byFunctionAndRelatesTo.get(featureFunction);
+    if (related == null) {
+      return null;
+    }
+    List<Feature> found = related.get(relatesTo);
+    return (found == null || found.isEmpty()) ? null : found.get(0);
+  }
+
+  public Feature findById(String id) {
+    return byId.get(id);
+  }
+
+  /**
+   * Adds the feature to the end of the collection.
+   */
+  public void add(Feature f) {
+    features.add(f);
+    index(f);
+  }
+
+  /**
+   * Removes all features with the given featureFunction and relatesTo from the
+   * collection.
+   */
+  public void removeRelated(String featureFunction, String relatesTo) {
+    Map<String, List<Feature>> related = byFunctionAndRelatesTo.get(featureFunction);
+    List<Feature> toremove = related == null ? null : related.remove(relatesTo);
+    if (toremove == null || toremove.isEmpty()) {
+      return;
+    }
+    features.removeAll(toremove);
+    byFunction.get(featureFunction).removeAll(toremove);
+    for (Feature f : toremove) {
+      if (f.getId() != null && byId.get(f.getId()) == f) {
+        byId.remove(f.getId());
+        for (Feature other : features) {
+          if (f.getId().equals(other.getId())) {
+            byId.put(other.getId(), other);
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  private void index(Feature f) {
+    String featureFunction = stringProperty(f, FEATURE_FUNCTION);
+    if (featureFunction != null) {
+      byFunction.computeIfAbsent(featureFunction, k -> new ArrayList<Feature>()).add(f);
+      String relatesTo = stringProperty(f, RELATES_TO);
+      if (relatesTo != null) {
+        byFunctionAndRelatesTo.computeIfAbsent(featureFunction, k -> new HashMap<String, List<Feature>>())
+            .computeIfAbsent(relatesTo, k -> new ArrayList<Feature>()).add(f);
+      }
+    } else {
+      byFunction.computeIfAbsent(null, k -> new ArrayList<Feature>()).add(f);
+    }
+    if (f.getId() != null) {
+      byId.putIfAbsent(f.getId(), f);
+    }
+  }
+
+  private int indexedCount() {
+    int count = 0;
+    for (List<Feature> found : byFunction.values()) {
+      count += found.size();
+    }
+    return count;
+  }
+
+  private static String stringProperty(Feature f, String name) {
+    Object value = f.getProperty(name);
+    return value == null ? null : value.toString();
+  }
+}
@@ -0,0 +1,84 @@
+package nl.knmi.geoweb.backend.product.sigmetairmet;
+
+import java.util.List;
+
+import org.geojson.LngLatAlt;
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * Writes positions in the degrees and minutes notation of SIGMET and AIRMET
+ * TAC, like N5230 E00445, into a caller provided StringBuilder.
+ *
+ * Positions are rounded to whole minutes, so 52.9999 becomes N5300 and not
+ * N5260.
+ */
+public class LatLonEncoder {
+  private static final String POINT_SEPARATOR = " - ";
+
+  private LatLonEncoder() {
+  }
+
+  public static StringBuilder appendLat(StringBuilder sb, double lat) {
+    sb.append(lat < 0 ? 'S' : 'N');
+    return appendDegreesMinutes(sb, lat, 2);
+  }
+
+  public static StringBuilder appendLon(StringBuilder sb, double lon) {
+    sb.append(lon < 0 ? 'W' : 'E');
+    return appendDegreesMinutes(sb, lon, 3);
+  }
+
+  public static StringBuilder appendPoint(StringBuilder sb, double lon, double lat) {
+    appendLat(sb, lat);
+    sb.append(' ');
+    return appendLon(sb, lon);
+  }
+
+  public static StringBuilder appendPoints(StringBuilder sb, List<LngLatAlt> coords) {
+    for (int i = 0; i < coords.size(); i++) {
+      if (i > 0) {
+        sb.append(POINT_SEPARATOR);
+      }
+      appendPoint(sb, coords.get(i).getLongitude(), coords.get(i).getLatitude());
+    }
+    return sb;
+  }
+
+  public static StringBuilder appendPoints(StringBuilder sb, Coordinate[] coords) {
+    for (int i = 0; i < coords.length; i++) {
+      if (i > 0) {
+        sb.append(POINT_SEPARATOR);
+      }
+      appendPoint(sb, coords[i].x, coords[i].y);
+    }
+    return sb;
+  }
+
+  public static String lat(double lat) {
+    return appendLat(new StringBuilder(5), lat).toString();
+  }
+
+  public static String lon(double lon) {
+    return appendLon(new StringBuilder(6), lon).toString();
+  }
+
+  private static StringBuilder appendDegreesMinutes(StringBuilder sb, double value, int degreeDigits) {
+    long totalMinutes = Math.round(Math.abs(value) * 60.0);
+    long degrees = totalMinutes / 60;
+    int minutes = (int) (totalMinutes % 60);
+    appendPadded(sb, degrees, degreeDigits);
+    sb.append((char) ('0' + minutes / 10));
+    sb.append((char) ('0' + minutes % 10));
+    return sb;
+  }
+
+  private static void appendPadded(StringBuilder sb, long value, int digits) {
+    if (digits > 2 && value < 100) {
+      sb.append('0');
+    }
+    if (value < 10) {
+      sb.append('0');
+    }
+    sb.append(value);
+  }
+}
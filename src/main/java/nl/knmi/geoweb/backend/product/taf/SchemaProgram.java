@@ -0,0 +1,722 @@
+package nl.knmi.geoweb.backend.product.taf;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.joda.time.DateTimeFieldType;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.DateTimeFormatterBuilder;
+import org.joda.time.format.DateTimeParser;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.report.ListProcessingReport;
+import com.github.fge.jsonschema.core.report.LogLevel;
+import com.github.fge.jsonschema.core.report.ProcessingMessage;
+import com.github.fge.jsonschema.core.report.ProcessingReport;
+
+/**
+ * A draft 4 JSON schema compiled into a tree of rules that validate a JsonNode
+ * directly, instead of interpreting the schema for every validation.
+ *
+ * The reports are those of the json-schema-validator library with the same
+ * settings as the TafValidator: the same messages with the same keyword,
+ * schema pointer and instance pointer, the nested reports of allOf, anyOf and
+ * oneOf, and no validation of the children of a node once an error was
+ * reported. The texts of the messages are shorter.
+ *
+ * Only the keywords and formats used by the TAF schemas are supported,
+ * compiling any other schema throws an IllegalArgumentException so the caller
+ * can use the library instead.
+ */
+public class SchemaProgram {
+	private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+	// Keywords that do not validate anything
+	private static final Set<String> ANNOTATIONS = new HashSet<>(
+			Arrays.asList("$schema", "title", "description", "default", "definitions"));
+
+	// Formats known to the library that are not supported here; the library
+	// ignores formats it does not know
+	private static final Set<String> UNSUPPORTED_FORMATS = new HashSet<>(Arrays.asList("email", "hostname", "ipv4",
+			"ipv6", "regex", "uri", "base64", "json-pointer", "mac", "md5", "sha1", "sha256", "sha512"));
+
+	// The date-time format of the library
+	private static final DateTimeFormatter DATE_TIME_FORMATTER;
+	static {
+		DateTimeParser fractionOfSecond = new DateTimeFormatterBuilder().appendLiteral('.').appendFractionOfSecond(1, 12)
+				.toParser();
+		DATE_TIME_FORMATTER = new DateTimeFormatterBuilder().appendFixedDecimal(DateTimeFieldType.year(), 4)
+				.appendLiteral('-').appendFixedDecimal(DateTimeFieldType.monthOfYear(), 2).appendLiteral('-')
+				.appendFixedDecimal(DateTimeFieldType.dayOfMonth(), 2).appendLiteral('T')
+				.appendFixedDecimal(DateTimeFieldType.hourOfDay(), 2).appendLiteral(':')
+				.appendFixedDecimal(DateTimeFieldType.minuteOfHour(), 2).appendLiteral(':')
+				.appendFixedDecimal(DateTimeFieldType.secondOfMinute(), 2).appendOptional(fractionOfSecond)
+				.appendTimeZoneOffset("Z", false, 2, 2).toFormatter();
+	}
+
+	private interface Check {
+		void check(Rule rule, JsonNode instance, String pointer, ProcessingReport report, Chain chain)
+				throws ProcessingException;
+	}
+
+	// The schemas applied to the same instance so far, to detect validation loops
+	private static class Chain {
+		private final Rule rule;
+		private final Chain parent;
+
+		private Chain(Rule rule, Chain parent) {
+			this.rule = rule;
+			this.parent = parent;
+		}
+
+		private boolean contains(Rule rule) {
+			for (Chain chain = this; chain != null; chain = chain.parent) {
+				if (chain.rule == rule) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	// The compiled form of one schema
+	private static class Rule {
+		private final ObjectNode schema;
+		private final String pointer;
+		private final List<Check> checks = new ArrayList<>();
+		private Map<String, Rule> properties = Collections.emptyMap();
+		private Rule additionalProperties;
+		private Rule items;
+		private List<Rule> tupleItems;
+		private Rule additionalItems;
+
+		private Rule(String loadingURI, String pointer) {
+			this.pointer = pointer;
+			schema = FACTORY.objectNode();
+			schema.put("loadingURI", loadingURI);
+			schema.put("pointer", pointer);
+		}
+
+		private List<Rule> childRules(String fieldName) {
+			Rule property = properties.get(fieldName);
+			if (property != null) {
+				return Collections.singletonList(property);
+			}
+			return additionalProperties == null ? Collections.emptyList()
+					: Collections.singletonList(additionalProperties);
+		}
+
+		private List<Rule> childRules(int index) {
+			if (items != null) {
+				return Collections.singletonList(items);
+			}
+			if (tupleItems != null && index < tupleItems.size()) {
+				return Collections.singletonList(tupleItems.get(index));
+			}
+			return additionalItems == null ? Collections.emptyList() : Collections.singletonList(additionalItems);
+		}
+
+		private ProcessingMessage message(String keyword, String pointer, String text) {
+			ObjectNode instance = FACTORY.objectNode();
+			instance.put("pointer", pointer);
+			return new ProcessingMessage().setMessage(text).put("schema", schema).put("instance", instance)
+					.put("domain", "validation").put("keyword", keyword);
+		}
+	}
+
+	private final URI namespace;
+	private final Function<URI, JsonNode> loader;
+	private final Map<URI, JsonNode> documents = new HashMap<>();
+	private final Map<String, Rule> rules = new HashMap<>();
+	private final Set<String> resolving = new HashSet<>();
+	private final Rule root;
+
+	private SchemaProgram(JsonNode schema, URI namespace, Function<URI, JsonNode> loader) {
+		this.namespace = namespace;
+		this.loader = loader;
+		documents.put(URI.create(""), schema);
+		root = compile(URI.create(""), "");
+	}
+
+	/**
+	 * Compiles a schema
+	 *
+	 * @param namespace
+	 *            the URI that relative references to other schemas are resolved
+	 *            against
+	 * @param loader
+	 *            loads the schema at an absolute URI without fragment, or returns
+	 *            null if there is none
+	 * @throws IllegalArgumentException
+	 *             if the schema, or a schema it refers to, can not be compiled
+	 */
+	public static SchemaProgram compile(JsonNode schema, URI namespace, Function<URI, JsonNode> loader) {
+		return new SchemaProgram(schema, namespace, loader);
+	}
+
+	public ProcessingReport validate(JsonNode instance) throws ProcessingException {
+		ProcessingReport report = new ListProcessingReport(LogLevel.ERROR, LogLevel.FATAL);
+		process(root, instance, "", report, null);
+		return report;
+	}
+
+	private void process(Rule rule, JsonNode instance, String pointer, ProcessingReport report, Chain chain)
+			throws ProcessingException {
+		if (chain != null && chain.contains(rule)) {
+			throw new ProcessingException("validation loop: schema " + rule.schema + " visited twice for pointer "
+					+ pointer);
+		}
+		Chain ruleChain = new Chain(rule, chain);
+		for (Check check : rule.checks) {
+			check.check(rule, instance, pointer, report, ruleChain);
+		}
+		// Like the library, the children are only validated as long as there are no errors
+		if (!report.isSuccess()) {
+			return;
+		}
+		if (instance.isArray()) {
+			for (int i = 0; i < instance.size(); i++) {
+				for (Rule childRule : rule.childRules(i)) {
+					process(childRule, instance.get(i), pointer + "/" + i, report, null);
+				}
+			}
+		} else if (instance.isObject()) {
+			List<String> fieldNames = new ArrayList<>(instance.size());
+			instance.fieldNames().forEachRemaining(fieldNames::add);
+			Collections.sort(fieldNames);
+			for (String fieldName : fieldNames) {
+				for (Rule childRule : rule.childRules(fieldName)) {
+					process(childRule, instance.get(fieldName), pointer + "/" + escape(fieldName), report, null);
+				}
+			}
+		}
+	}
+
+	private Rule compile(URI document, String pointer) {
+		String key = document + "#" + pointer;
+		Rule rule = rules.get(key);
+		if (rule != null) {
+			return rule;
+		}
+		JsonNode schema = load(document).at(JsonPointer.compile(pointer));
+		if (!schema.isObject()) {
+			throw new IllegalArgumentException("No schema at " + key);
+		}
+		if (schema.has("$ref")) {
+			URI target = document.resolve(schema.get("$ref").asText());
+			if (!target.isAbsolute() && !target.getSchemeSpecificPart().isEmpty()) {
+				target = namespace.resolve(target);
+			}
+			URI targetDocument = withoutFragment(target);
+			String fragment = target.getFragment() == null ? "" : target.getFragment();
+			JsonNode targetDocumentSchema = load(targetDocument);
+			if (targetDocumentSchema == null || targetDocumentSchema.at(JsonPointer.compile(fragment)).isMissingNode()) {
+				// Like the library, only fail when the reference is used
+				String ref = schema.get("$ref").asText();
+				rule = new Rule(document.toString() + "#", pointer);
+				rule.checks.add((unresolved, instance, instancePointer, report, chain) -> {
+					throw new ProcessingException("JSON Reference \"" + ref + "\" cannot be resolved");
+				});
+				rules.put(key, rule);
+				return rule;
+			}
+			rule = rules.get(targetDocument + "#" + fragment);
+			if (rule == null) {
+				// Only references that refer to references can loop here, as a
+				// schema is registered before its subschemas are compiled
+				if (!resolving.add(key)) {
+					throw new IllegalArgumentException("Reference loop at " + key);
+				}
+				rule = compile(targetDocument, fragment);
+				resolving.remove(key);
+			}
+			rules.put(key, rule);
+			return rule;
+		}
+		if (schema.has("id")) {
+			throw new IllegalArgumentException("Unsupported keyword id at " + key);
+		}
+
+		rule = new Rule(document.toString() + "#", pointer);
+		rules.put(key, rule);
+		// Sorted, so the messages come in a fixed order
+		Map<String, JsonNode> keywords = new TreeMap<>();
+		schema.fields().forEachRemaining(field -> keywords.put(field.getKey(), field.getValue()));
+		for (Map.Entry<String, JsonNode> keyword : keywords.entrySet()) {
+			compileKeyword(rule, document, keyword.getKey(), keyword.getValue(), schema);
+		}
+		return rule;
+	}
+
+	private void compileKeyword(Rule rule, URI document, String keyword, JsonNode value, JsonNode schema) {
+		String pointer = rule.pointer + "/" + escape(keyword);
+		switch (keyword) {
+		case "type":
+			rule.checks.add(typeCheck(value));
+			break;
+		case "enum":
+			if (!value.isArray() || value.size() == 0) {
+				throw new IllegalArgumentException("Invalid value of enum at " + pointer);
+			}
+			rule.checks.add(enumCheck(value));
+			break;
+		case "required":
+			if (!value.isArray() || value.size() == 0) {
+				throw new IllegalArgumentException("Invalid value of required at " + pointer);
+			}
+			rule.checks.add(requiredCheck(value));
+			break;
+		case "properties":
+			Map<String, Rule> properties = new HashMap<>();
+			value.fields().forEachRemaining(
+					field -> properties.put(field.getKey(), compile(document, pointer + "/" + escape(field.getKey()))));
+			rule.properties = properties;
+			break;
+		case "additionalProperties":
+			if (value.isObject()) {
+				rule.additionalProperties = compile(document, pointer);
+			} else if (!value.asBoolean(true)) {
+				rule.checks.add(additionalPropertiesCheck(schema.path("properties")));
+			}
+			break;
+		case "items":
+			if (value.isArray()) {
+				rule.tupleItems = new ArrayList<>();
+				for (int i = 0; i < value.size(); i++) {
+					rule.tupleItems.add(compile(document, pointer + "/" + i));
+				}
+			} else {
+				rule.items = compile(document, pointer);
+			}
+			break;
+		case "additionalItems":
+			if (value.isObject()) {
+				rule.additionalItems = compile(document, pointer);
+			} else if (!value.asBoolean(true) && schema.path("items").isArray()) {
+				rule.checks.add(additionalItemsCheck(schema.get("items").size()));
+			}
+			break;
+		case "minItems":
+			rule.checks.add(sizeCheck(keyword, JsonNode::isArray, count(value, pointer), true));
+			break;
+		case "maxItems":
+			rule.checks.add(sizeCheck(keyword, JsonNode::isArray, count(value, pointer), false));
+			break;
+		case "minProperties":
+			rule.checks.add(sizeCheck(keyword, JsonNode::isObject, count(value, pointer), true));
+			break;
+		case "maxProperties":
+			rule.checks.add(sizeCheck(keyword, JsonNode::isObject, count(value, pointer), false));
+			break;
+		case "minLength":
+			rule.checks.add(lengthCheck(keyword, count(value, pointer), true));
+			break;
+		case "maxLength":
+			rule.checks.add(lengthCheck(keyword, count(value, pointer), false));
+			break;
+		case "uniqueItems":
+			if (value.asBoolean()) {
+				rule.checks.add(uniqueItemsCheck());
+			}
+			break;
+		case "minimum":
+			rule.checks.add(
+					limitCheck(keyword, number(value, pointer), schema.path("exclusiveMinimum").asBoolean(), true));
+			break;
+		case "maximum":
+			rule.checks.add(
+					limitCheck(keyword, number(value, pointer), schema.path("exclusiveMaximum").asBoolean(), false));
+			break;
+		case "exclusiveMinimum":
+		case "exclusiveMaximum":
+			break;
+		case "multipleOf":
+			if (number(value, pointer).signum() <= 0) {
+				throw new IllegalArgumentException("Invalid value of multipleOf at " + pointer);
+			}
+			rule.checks.add(multipleOfCheck(value.decimalValue()));
+			break;
+		case "format":
+			Check formatCheck = formatCheck(value.asText());
+			if (formatCheck != null) {
+				rule.checks.add(formatCheck);
+			}
+			break;
+		case "allOf":
+		case "anyOf":
+		case "oneOf":
+			if (!value.isArray() || value.size() == 0) {
+				throw new IllegalArgumentException("Invalid value of " + keyword + " at " + pointer);
+			}
+			List<Rule> subRules = new ArrayList<>();
+			for (int i = 0; i < value.size(); i++) {
+				subRules.add(compile(document, pointer + "/" + i));
+			}
+			rule.checks.add(schemaArrayCheck(keyword, subRules));
+			break;
+		case "not":
+			rule.checks.add(notCheck(compile(document, pointer)));
+			break;
+		default:
+			if (!ANNOTATIONS.contains(keyword) && !keyword.startsWith(TafValidator.GEOWEB_DIRECTIVES_ELEMENT_PREFIX)) {
+				throw new IllegalArgumentException("Unsupported keyword " + keyword + " at " + pointer);
+			}
+		}
+	}
+
+	private static int count(JsonNode value, String pointer) {
+		if (!value.isIntegralNumber() || !value.canConvertToInt() || value.intValue() < 0) {
+			throw new IllegalArgumentException("Invalid count at " + pointer);
+		}
+		return value.intValue();
+	}
+
+	private static BigDecimal number(JsonNode value, String pointer) {
+		if (!value.isNumber()) {
+			throw new IllegalArgumentException("Invalid number at " + pointer);
+		}
+		return value.decimalValue();
+	}
+
+	/**
+	 * @return the schema document, or null if it can not be loaded
+	 */
+	private JsonNode load(URI document) {
+		JsonNode schema = documents.get(document);
+		if (schema == null) {
+			schema = loader.apply(document);
+			if (schema == null) {
+				return null;
+			}
+			documents.put(document, schema);
+		}
+		return schema;
+	}
+
+	private static URI withoutFragment(URI uri) {
+		try {
+			return new URI(uri.getScheme(), uri.getSchemeSpecificPart(), null);
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	private static String escape(String token) {
+		return token.replace("~", "~0").replace("/", "~1");
+	}
+
+	/**
+	 * @return the type of the node as named by JSON schema, where a number
+	 *         written without fraction or exponent is an integer
+	 */
+	private static String typeOf(JsonNode node) {
+		switch (node.asToken()) {
+		case START_ARRAY:
+			return "array";
+		case START_OBJECT:
+			return "object";
+		case VALUE_STRING:
+			return "string";
+		case VALUE_NUMBER_INT:
+			return "integer";
+		case VALUE_NUMBER_FLOAT:
+			return "number";
+		case VALUE_TRUE:
+		case VALUE_FALSE:
+			return "boolean";
+		case VALUE_NULL:
+			return "null";
+		default:
+			return "any";
+		}
+	}
+
+	/**
+	 * @return true if both nodes are equal, where numbers are equal if their
+	 *         values are
+	 */
+	private static boolean valueEquals(JsonNode a, JsonNode b) {
+		if (a.isNumber() && b.isNumber()) {
+			return a.decimalValue().compareTo(b.decimalValue()) == 0;
+		}
+		if (a.isArray() && b.isArray()) {
+			if (a.size() != b.size()) {
+				return false;
+			}
+			for (int i = 0; i < a.size(); i++) {
+				if (!valueEquals(a.get(i), b.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (a.isObject() && b.isObject()) {
+			if (a.size() != b.size()) {
+				return false;
+			}
+			Iterator<Map.Entry<String, JsonNode>> fields = a.fields();
+			while (fields.hasNext()) {
+				Map.Entry<String, JsonNode> field = fields.next();
+				JsonNode other = b.get(field.getKey());
+				if (other == null || !valueEquals(field.getValue(), other)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return a.equals(b);
+	}
+
+	private static Check typeCheck(JsonNode value) {
+		Set<String> types = new HashSet<>();
+		if (value.isArray()) {
+			value.forEach(type -> types.add(type.asText()));
+		} else {
+			types.add(value.asText());
+		}
+		if (!Arrays.asList("array", "boolean", "integer", "null", "number", "object", "string").containsAll(types)) {
+			throw new IllegalArgumentException("Unsupported type " + value);
+		}
+		return (rule, instance, pointer, report, chain) -> {
+			String type = typeOf(instance);
+			if (!types.contains(type) && !(type.equals("integer") && types.contains("number"))) {
+				report.error(rule.message("type", pointer, "instance type (" + type
+						+ ") does not match any allowed primitive type (allowed: " + new TreeSet<>(types) + ")"));
+			}
+		};
+	}
+
+	private static Check enumCheck(JsonNode values) {
+		return (rule, instance, pointer, report, chain) -> {
+			for (JsonNode value : values) {
+				if (valueEquals(value, instance)) {
+					return;
+				}
+			}
+			report.error(rule.message("enum", pointer,
+					"instance value (" + instance + ") not found in enum (possible values: " + values + ")"));
+		};
+	}
+
+	private static Check requiredCheck(JsonNode value) {
+		List<String> required = new ArrayList<>();
+		value.forEach(name -> required.add(name.asText()));
+		Collections.sort(required);
+		return (rule, instance, pointer, report, chain) -> {
+			if (!instance.isObject()) {
+				return;
+			}
+			List<String> missing = new ArrayList<>();
+			for (String name : required) {
+				if (!instance.has(name)) {
+					missing.add(name);
+				}
+			}
+			if (!missing.isEmpty()) {
+				report.error(rule.message("required", pointer, "object has missing required properties " + missing));
+			}
+		};
+	}
+
+	private static Check additionalPropertiesCheck(JsonNode properties) {
+		Set<String> allowed = new HashSet<>();
+		properties.fieldNames().forEachRemaining(allowed::add);
+		return (rule, instance, pointer, report, chain) -> {
+			if (!instance.isObject()) {
+				return;
+			}
+			Set<String> unwanted = new TreeSet<>();
+			instance.fieldNames().forEachRemaining(name -> {
+				if (!allowed.contains(name)) {
+					unwanted.add(name);
+				}
+			});
+			if (!unwanted.isEmpty()) {
+				report.error(rule.message("additionalProperties", pointer,
+						"object instance has properties which are not allowed by the schema: " + unwanted));
+			}
+		};
+	}
+
+	private static Check additionalItemsCheck(int tupleSize) {
+		return (rule, instance, pointer, report, chain) -> {
+			if (instance.isArray() && instance.size() > tupleSize) {
+				report.error(rule.message("additionalItems", pointer,
+						"array instance has more elements than allowed by the schema (allowed: " + tupleSize
+								+ ", found: " + instance.size() + ")"));
+			}
+		};
+	}
+
+	private static Check sizeCheck(String keyword, Predicate<JsonNode> applies, int limit, boolean minimum) {
+		return (rule, instance, pointer, report, chain) -> {
+			if (applies.test(instance) && (minimum ? instance.size() < limit : instance.size() > limit)) {
+				report.error(rule.message(keyword, pointer, "instance has " + (minimum ? "too few" : "too many")
+						+ " elements (" + keyword + ": " + limit + ", found: " + instance.size() + ")"));
+			}
+		};
+	}
+
+	private static Check lengthCheck(String keyword, int limit, boolean minimum) {
+		return (rule, instance, pointer, report, chain) -> {
+			if (!instance.isTextual()) {
+				return;
+			}
+			String text = instance.textValue();
+			int length = text.codePointCount(0, text.length());
+			if (minimum ? length < limit : length > limit) {
+				report.error(rule.message(keyword, pointer, "string is " + (minimum ? "too short" : "too long")
+						+ " (" + keyword + ": " + limit + ", found: " + length + ")"));
+			}
+		};
+	}
+
+	private static Check uniqueItemsCheck() {
+		return (rule, instance, pointer, report, chain) -> {
+			if (!instance.isArray()) {
+				return;
+			}
+			for (int i = 0; i < instance.size(); i++) {
+				for (int j = i + 1; j < instance.size(); j++) {
+					if (valueEquals(instance.get(i), instance.get(j))) {
+						report.error(rule.message("uniqueItems", pointer, "array must not contain duplicate elements"));
+						return;
+					}
+				}
+			}
+		};
+	}
+
+	private static Check limitCheck(String keyword, BigDecimal limit, boolean exclusive, boolean minimum) {
+		return (rule, instance, pointer, report, chain) -> {
+			if (!instance.isNumber()) {
+				return;
+			}
+			int comparison = instance.decimalValue().compareTo(limit);
+			if (minimum ? comparison < 0 || (exclusive && comparison == 0)
+					: comparison > 0 || (exclusive && comparison == 0)) {
+				report.error(rule.message(keyword, pointer, "numeric instance is " + (minimum ? "lower" : "greater")
+						+ " than the required " + keyword + " (" + keyword + ": " + limit + ", found: "
+						+ instance.decimalValue() + ")"));
+			}
+		};
+	}
+
+	private static Check multipleOfCheck(BigDecimal divisor) {
+		return (rule, instance, pointer, report, chain) -> {
+			if (instance.isNumber() && instance.decimalValue().remainder(divisor).compareTo(BigDecimal.ZERO) != 0) {
+				report.error(rule.message("multipleOf", pointer, "remainder of division is not zero (" + instance
+						+ " / " + divisor + ")"));
+			}
+		};
+	}
+
+	private static Check formatCheck(String format) {
+		if (UNSUPPORTED_FORMATS.contains(format)) {
+			throw new IllegalArgumentException("Unsupported format " + format);
+		}
+		Predicate<String> valid;
+		switch (format) {
+		case "date-time":
+			valid = text -> {
+				try {
+					DATE_TIME_FORMATTER.parseDateTime(text);
+					return true;
+				} catch (IllegalArgumentException e) {
+					return false;
+				}
+			};
+			break;
+		case "uuid":
+			valid = text -> {
+				try {
+					UUID.fromString(text);
+					return true;
+				} catch (IllegalArgumentException e) {
+					return false;
+				}
+			};
+			break;
+		default:
+			// The library only warns about formats it does not know
+			return null;
+		}
+		return (rule, instance, pointer, report, chain) -> {
+			if (instance.isTextual() && !valid.test(instance.textValue())) {
+				report.error(rule.message("format", pointer,
+						"string " + instance + " is invalid against requested format " + format));
+			}
+		};
+	}
+
+	private Check schemaArrayCheck(String keyword, List<Rule> subRules) {
+		return (rule, instance, pointer, report, chain) -> {
+			ObjectNode reports = FACTORY.objectNode();
+			int matched = 0;
+			for (int i = 0; i < subRules.size(); i++) {
+				ListProcessingReport subReport = new ListProcessingReport(report.getLogLevel(), LogLevel.FATAL);
+				process(subRules.get(i), instance, pointer, subReport, chain);
+				reports.set(rule.pointer + "/" + keyword + "/" + i, subReport.asJson());
+				if (subReport.isSuccess()) {
+					matched++;
+				}
+			}
+			String text;
+			switch (keyword) {
+			case "allOf":
+				if (matched == subRules.size()) {
+					return;
+				}
+				text = "instance failed to match all required schemas (matched only " + matched + " out of "
+						+ subRules.size() + ")";
+				break;
+			case "anyOf":
+				if (matched > 0) {
+					return;
+				}
+				text = "instance failed to match at least one required schema among " + subRules.size();
+				break;
+			default:
+				if (matched == 1) {
+					return;
+				}
+				text = "instance failed to match exactly one schema (matched " + matched + " out of "
+						+ subRules.size() + ")";
+			}
+			ProcessingMessage message = rule.message(keyword, pointer, text);
+			if (!keyword.equals("anyOf")) {
+				message.put("matched", matched);
+			}
+			report.error(message.put("nrSchemas", subRules.size()).put("reports", reports));
+		};
+	}
+
+	private Check notCheck(Rule subRule) {
+		return (rule, instance, pointer, report, chain) -> {
+			ListProcessingReport subReport = new ListProcessingReport(report.getLogLevel(), LogLevel.FATAL);
+			process(subRule, instance, pointer, subReport, chain);
+			if (subReport.isSuccess()) {
+				report.error(rule.message("not", pointer, "instance matched a schema which it should not have"));
+			}
+		};
+	}
+}
@@ -1,5 +1,6 @@
 package nl.knmi.geoweb.backend.product.taf;
 
+import java.io.IOException;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -63,15 +64,16 @@ public class TAFtoTACMaps {
 		return phenomenaMap.get(phenomenon.trim());
 	}
 
+	private static final DateTimeFormatter DDHHMM = DateTimeFormatter.ofPattern("ddHHmm'Z'");
+	private static final DateTimeFormatter DDHH = DateTimeFormatter.ofPattern("ddHH");
+
 	public static String toDDHHMM(OffsetDateTime t) {
 		if(t==null)return null;
-		DateTimeFormatter fmt= DateTimeFormatter.ofPattern("ddHHmm'Z'");
-		return t.format(fmt);
+		return t.format(DDHHMM);
 	}
 
 	public static String toDDHH(OffsetDateTime t) {
-		DateTimeFormatter fmt= DateTimeFormatter.ofPattern("ddHH");
-		return t.format(fmt);
+		return t.format(DDHH);
 	}
 
 	public static String toDDHH24(OffsetDateTime t) {
@@ -79,8 +81,77 @@ public class TAFtoTACMaps {
 			OffsetDateTime tprev=t.minusDays(1);
 			return String.format("%02d%02d", tprev.getDayOfMonth(),24);
 		}
-		DateTimeFormatter fmt= DateTimeFormatter.ofPattern("ddHH");
-		return t.format(fmt);
+		return t.format(DDHH);
+	}
+
+	/**
+	 * Writes the TAC of a TAF, or of a part of it
+	 */
+	@FunctionalInterface
+	interface TacWriter {
+		void appendTAC(Appendable out) throws IOException;
+	}
+
+	static String toTAC(TacWriter writer) {
+		StringBuilder sb = new StringBuilder(128);
+		try {
+			writer.appendTAC(sb);
+		} catch (IOException e) {
+			// Appending to a StringBuilder does not throw
+			throw new IllegalStateException(e);
+		}
+		return sb.toString();
+	}
+
+	/* As toDDHHMM, for a time that is not null */
+	static void appendDDHHMM(Appendable out, OffsetDateTime t) throws IOException {
+		appendPadded(out, t.getDayOfMonth(), 2);
+		appendPadded(out, t.getHour(), 2);
+		appendPadded(out, t.getMinute(), 2);
+		out.append('Z');
+	}
+
+	static void appendDDHH(Appendable out, OffsetDateTime t) throws IOException {
+		appendPadded(out, t.getDayOfMonth(), 2);
+		appendPadded(out, t.getHour(), 2);
+	}
+
+	static void appendDDHH24(Appendable out, OffsetDateTime t) throws IOException {
+		if ((t.getMinute()==0)&&(t.getHour()==0)) {
+			appendPadded(out, t.minusDays(1).getDayOfMonth(), 2);
+			out.append("24");
+			return;
+		}
+		appendDDHH(out, t);
+	}
+
+	/**
+	 * Writes a number as String.format("%0[width]d", value) does, without
+	 * formatting it
+	 */
+	static void appendPadded(Appendable out, Integer value, int width) throws IOException {
+		if (value == null) {
+			out.append("null");
+			return;
+		}
+		long v = value;
+		if (v < 0) {
+			out.append('-');
+			v = -v;
+			width--;
+		}
+		long divisor = 1;
+		int digits = 1;
+		while (divisor * 10 <= v) {
+			divisor *= 10;
+			digits++;
+		}
+		for (int i = digits; i < width; i++) {
+			out.append('0');
+		}
+		for (; divisor > 0; divisor /= 10) {
+			out.append((char) ('0' + v / divisor % 10));
+		}
 	}
 
 	private static String findPhenomena(String term) {
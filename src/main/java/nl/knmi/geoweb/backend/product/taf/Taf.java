@@ -309,17 +309,19 @@ public class Taf implements GeoWebProduct, IExportable<Taf> {
 			}
 
 			public String toTAC() {
-				StringBuilder sb = new StringBuilder();
+				return TAFtoTACMaps.toTAC(this::appendTAC);
+			}
+
+			public void appendTAC(Appendable out) throws IOException {
 				if (isNSC != null && isNSC) {
-					sb.append("NSC");
+					out.append("NSC");
 				} else {
-					sb.append(amount.toString());
-					sb.append(String.format("%03d", height));
+					out.append(amount.toString());
+					TAFtoTACMaps.appendPadded(out, height, 3);
 					if (mod != null) {
-						sb.append(mod);
+						out.append(mod);
 					}
 				}
-				return sb.toString();
 			}
 		}
 
@@ -399,22 +401,25 @@ public class Taf implements GeoWebProduct, IExportable<Taf> {
 			}
 
 			public String toString() {
-				StringBuilder sb = new StringBuilder();
+				return TAFtoTACMaps.toTAC(this::appendTAC);
+			}
+
+			public void appendTAC(Appendable out) throws IOException {
 				if (this.isNSW != null && this.isNSW == true) {
-					return "NSW";
+					out.append("NSW");
+					return;
 				}
 				if (this.qualifier != null) {
-					sb.append(TAFtoTACMaps.getQualifier(this.qualifier));
+					out.append(TAFtoTACMaps.getQualifier(this.qualifier));
 				}
 				if (this.descriptor != null) {
-					sb.append(TAFtoTACMaps.getDescriptor(this.descriptor));
+					out.append(TAFtoTACMaps.getDescriptor(this.descriptor));
 				}
 				if (this.phenomena != null && !this.phenomena.isEmpty()) {
 					for (String phenomenon : this.phenomena) {
-						sb.append(TAFtoTACMaps.getPhenomena(phenomenon));
+						out.append(TAFtoTACMaps.getPhenomena(phenomenon));
 					}
 				}
-				return sb.toString();
 			}
 		}
 
@@ -460,11 +465,18 @@ public class Taf implements GeoWebProduct, IExportable<Taf> {
 			String unit;
 
 			public String toTAC() {
+				return TAFtoTACMaps.toTAC(this::appendTAC);
+			}
+
+			public void appendTAC(Appendable out) throws IOException {
 				if (unit == null || unit.equalsIgnoreCase("M")) {
-					return String.format("%04d", value);
+					TAFtoTACMaps.appendPadded(out, value, 4);
+					return;
 				}
 				if (unit.equals("KM")) {
-					return String.format("%02d", value) + "KM";
+					TAFtoTACMaps.appendPadded(out, value, 2);
+					out.append("KM");
+					return;
 				}
 				throw new IllegalArgumentException("Unknown unit found for visibility");
 			}
@@ -532,35 +544,58 @@ public class Taf implements GeoWebProduct, IExportable<Taf> {
 			TAFWindSpeedOperator gustsOperator;
 
 			public String toTAC() {
-				StringBuilder sb = new StringBuilder();
-				if (direction.toString().equals("VRB")) {
-					sb.append("VRB");
+				return TAFtoTACMaps.toTAC(this::appendTAC);
+			}
+
+			public void appendTAC(Appendable out) throws IOException {
+				if (direction instanceof Integer) {
+					TAFtoTACMaps.appendPadded(out, (Integer) direction, 3);
 				} else {
-					sb.append(String.format("%03.0f", Double.parseDouble(direction.toString())));
+					String directionStr = direction.toString();
+					if (directionStr.equals("VRB")) {
+						out.append("VRB");
+					} else if (isDigits(directionStr)) {
+						TAFtoTACMaps.appendPadded(out, Integer.parseInt(directionStr), 3);
+					} else {
+						out.append(String.format("%03.0f", Double.parseDouble(directionStr)));
+					}
 				}
 				if (speedOperator != null) {
 					if (speedOperator.equals(TAFWindSpeedOperator.above)) {
-						sb.append("P");
+						out.append('P');
 					}
 					if (speedOperator.equals(TAFWindSpeedOperator.below)) {
-						sb.append("M"); // TODO: Is this possible?
+						out.append('M'); // TODO: Is this possible?
 					}
 				}
-				sb.append(String.format("%02d", speed));
+				TAFtoTACMaps.appendPadded(out, speed, 2);
 				if (gusts != null) {
-					sb.append(String.format("G"));
+					out.append('G');
 					if (gustsOperator != null) {
 						if (gustsOperator.equals(TAFWindSpeedOperator.above)) {
-							sb.append("P");
+							out.append('P');
 						}
 						if (gustsOperator.equals(TAFWindSpeedOperator.below)) {
-							sb.append("M"); // TODO: Is this possible?
+							out.append('M'); // TODO: Is this possible?
 						}
 					}
-					sb.append(String.format("%02d", gusts));
+					TAFtoTACMaps.appendPadded(out, gusts, 2);
 				}
-				sb.append(unit.toString());
-				return sb.toString();
+				out.append(unit.toString());
+			}
+
+			/* Whether a direction is a small number of ascii digits only, which are written as int */
+			private static boolean isDigits(String direction) {
+				if (direction.isEmpty() || direction.length() > 9) {
+					return false;
+				}
+				for (int i = 0; i < direction.length(); i++) {
+					char c = direction.charAt(i);
+					if (c < '0' || c > '9') {
+						return false;
+					}
+				}
+				return true;
 			}
 		}
 
@@ -636,34 +671,44 @@ public class Taf implements GeoWebProduct, IExportable<Taf> {
 		 * @return String with TAC representation of Forecast
 		 */
 		public String toTAC() {
-			StringBuilder sb = new StringBuilder();
+			return TAFtoTACMaps.toTAC(this::appendTAC);
+		}
+
+		public void appendTAC(Appendable out) throws IOException {
 			if (getWind() != null) {
-				sb.append(" "+getWind().toTAC());
+				out.append(' ');
+				getWind().appendTAC(out);
 			}
 			if (CaVOK != null && CaVOK == true) {
-				sb.append(" CAVOK");
+				out.append(" CAVOK");
 			} else {
 				if (visibility != null && visibility.value != null) {
-					sb.append(" "+visibility.toTAC());
+					out.append(' ');
+					visibility.appendTAC(out);
 				}
 				if (getWeather() != null) {
 					for (TAFWeather w : getWeather()) {
-						sb.append(" " + w);
+						out.append(' ');
+						if (w != null) {
+							w.appendTAC(out);
+						} else {
+							out.append("null");
+						}
 					}
 				}
 
 				if (getVertical_visibility() != null) {
-					sb.append(String.format(" VV%03d", getVertical_visibility()));
+					out.append(" VV");
+					TAFtoTACMaps.appendPadded(out, getVertical_visibility(), 3);
 				}
 				
 				if (getClouds() != null) {
 					for (TAFCloudType tp : getClouds()) {
-						sb.append(" ");
-						sb.append(tp.toTAC());
+						out.append(' ');
+						tp.appendTAC(out);
 					}
 				}
 			}
-			return sb.toString();
 		}
 	}
 
@@ -723,14 +768,18 @@ public class Taf implements GeoWebProduct, IExportable<Taf> {
 		Forecast forecast;
 
 		public String toTAC() {
-			StringBuilder sb = new StringBuilder();
-			sb.append(changeType.toString());
-			sb.append(" " + TAFtoTACMaps.toDDHH(changeStart));
+			return TAFtoTACMaps.toTAC(this::appendTAC);
+		}
+
+		public void appendTAC(Appendable out) throws IOException {
+			out.append(changeType.toString());
+			out.append(' ');
+			TAFtoTACMaps.appendDDHH(out, changeStart);
 			if (changeEnd!=null) { 
-				sb.append("/" + TAFtoTACMaps.toDDHH24(changeEnd));
+				out.append('/');
+				TAFtoTACMaps.appendDDHH24(out, changeEnd);
 			}
-			if (forecast!=null)sb.append(forecast.toTAC());
-			return sb.toString();
+			if (forecast!=null)forecast.appendTAC(out);
 		}
 	}
 
@@ -755,38 +804,45 @@ public class Taf implements GeoWebProduct, IExportable<Taf> {
 	}
 
 	public String toTAC() {
-		StringBuilder sb = new StringBuilder();
-		sb.append("TAF ");
+		return TAFtoTACMaps.toTAC(this::appendTAC);
+	}
+
+	/**
+	 * Writes the TAC of the TAF, as {@link #toTAC()} returns it
+	 */
+	public void appendTAC(Appendable out) throws IOException {
+		out.append("TAF ");
 		if (this.metadata.type !=null) switch (this.metadata.type) {
 		case amendment:
 		case canceled: //cancellation is also an AMD
-			sb.append("AMD ");
+			out.append("AMD ");
 			break;
 		case correction:
-			sb.append("COR ");
+			out.append("COR ");
 			break;
 		case retarded:
-			sb.append("RTD ");
+			out.append("RTD ");
 			break;
 		default:
 			// Append nothing here
 			break;
 		}
 
-		sb.append(this.metadata.location);
+		out.append(this.metadata.location);
 
 		/* Add issuetime */
 		if (this.metadata.issueTime != null) {
-			sb.append(" " + TAFtoTACMaps.toDDHHMM(this.metadata.issueTime));
+			out.append(' ');
+			TAFtoTACMaps.appendDDHHMM(out, this.metadata.issueTime);
 		} else{
-			sb.append(" " + "<not yet issued>");
+			out.append(" " + "<not yet issued>");
 		}
 
 		if (this.metadata.type !=null) switch (this.metadata.type) {
 		case missing:
 			// If missing, we're done here
-			sb.append(" NIL");
-			return sb.toString();
+			out.append(" NIL");
+			return;
 		default:
 			// do nothing
 			break;
@@ -795,32 +851,36 @@ public class Taf implements GeoWebProduct, IExportable<Taf> {
 		if (this.metadata.type !=null) switch (this.metadata.type) {
 		case canceled:
 			/* Add date */
+			out.append(' ');
 			if (this.metadata.previousMetadata != null) {
-				sb.append(" " + TAFtoTACMaps.toDDHH(this.metadata.previousMetadata.validityStart) + "/" + TAFtoTACMaps.toDDHH24(this.metadata.validityEnd));
+				TAFtoTACMaps.appendDDHH(out, this.metadata.previousMetadata.validityStart);
 			} else {
-				sb.append(" " + TAFtoTACMaps.toDDHH(this.metadata.validityStart) + "/" + TAFtoTACMaps.toDDHH24(this.metadata.validityEnd));
+				TAFtoTACMaps.appendDDHH(out, this.metadata.validityStart);
 			}
+			out.append('/');
+			TAFtoTACMaps.appendDDHH24(out, this.metadata.validityEnd);
 			// In case of a cancel there are no change groups so we're done here
-			sb.append(" CNL");
-			return sb.toString();
+			out.append(" CNL");
+			return;
 		default:
 			/* Add date */
-			sb.append(" " + TAFtoTACMaps.toDDHH(this.metadata.validityStart) + "/"
-					+ TAFtoTACMaps.toDDHH24(this.metadata.validityEnd));
+			out.append(' ');
+			TAFtoTACMaps.appendDDHH(out, this.metadata.validityStart);
+			out.append('/');
+			TAFtoTACMaps.appendDDHH24(out, this.metadata.validityEnd);
 			// do nothing
 			break;
 		}
 		// Add the rest of the TAC
 		if (this.forecast!=null) {
-			sb.append(this.forecast.toTAC());
+			this.forecast.appendTAC(out);
 		}
 		if (this.changegroups != null) {
 			for (ChangeForecast ch : this.changegroups) {
-				sb.append("\n" + ch.toTAC());
+				out.append('\n');
+				ch.appendTAC(out);
 			}
 		}
-
-		return sb.toString();
 	}
 
 	// Same as TAC, but maximum line with 69 chars where words (e.g. "BKN040") are not splitted
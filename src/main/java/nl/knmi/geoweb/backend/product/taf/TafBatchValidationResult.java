@@ -0,0 +1,63 @@
+package nl.knmi.geoweb.backend.product.taf;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+
+// Return the validation results of a batch of TAFs, in the order in which the TAFs were given,
+// together with the time it took to validate the batch
+public class TafBatchValidationResult {
+	@Getter
+	private final List<TafValidationResult> results;
+
+	// Wall clock time for the whole batch
+	@Getter
+	private final long elapsedNanos;
+
+	// Sum of the time spent on each TAF
+	@Getter
+	private final long validationNanos;
+
+	@Getter
+	private final int threads;
+
+	// Sum of the time spent in each enrichment rule, by the name of the rule
+	@Getter
+	private final Map<String, Long> augmentNanosByRule;
+
+	public TafBatchValidationResult(List<TafValidationResult> results, long elapsedNanos, long validationNanos,
+			int threads, Map<String, Long> augmentNanosByRule) {
+		this.results = results;
+		this.elapsedNanos = elapsedNanos;
+		this.validationNanos = validationNanos;
+		this.threads = threads;
+		this.augmentNanosByRule = augmentNanosByRule;
+	}
+
+	public boolean isSucceeded() {
+		return getSucceededCount() == results.size();
+	}
+
+	public int getSucceededCount() {
+		int count = 0;
+		for (TafValidationResult result : results) {
+			if (result.isSucceeded()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public double getElapsedMillis() {
+		return elapsedNanos / 1e6;
+	}
+
+	public double getAverageMillisPerTaf() {
+		return results.isEmpty() ? 0 : validationNanos / 1e6 / results.size();
+	}
+
+	public double getTafsPerSecond() {
+		return elapsedNanos == 0 ? 0 : results.size() * 1e9 / elapsedNanos;
+	}
+}
@@ -3,12 +3,23 @@ package nl.knmi.geoweb.backend.product.taf;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -22,179 +33,416 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 
 import lombok.Getter;
+import lombok.Setter;
 import nl.knmi.adaguc.tools.Debug;
 import nl.knmi.adaguc.tools.Tools;
 
+/**
+ * The TAF schemas of the store directory, held in memory. Each change publishes
+ * a new version of all schemas at once, readers keep the version they got until
+ * they ask again. Schemas placed in the directory by hand are picked up by
+ * {@link #getSchemas()} within {@link #DIRECTORY_CHECK_MILLIS}.
+ *
+ * The default schemas are served from the classpath, the schemas in the
+ * directory take their place. The default TAF and enriched TAF schemas are
+ * left out once the directory has a TAF or enriched TAF schema of its own. Schemas refer to each other by URIs in the
+ * {@link #NAMESPACE}, which are resolved in memory.
+ */
 @Component
 public class TafSchemaStore {
+	public static final String SCHEME = "tafschemas";
+	public static final URI NAMESPACE = URI.create(SCHEME + ":/");
+
+	private static final String SCHEMA_SCHEMA = "taf_jsonschema_schema.json";
+	private static final String DEFAULT_TAF_SCHEMA = "taf_schema_0.json";
+	private static final String DEFAULT_ENRICHED_TAF_SCHEMA = "enriched_taf_schema_0.json";
+	private static final FilenameFilter JSON_FILES = new FilenameFilter() {
+
+		@Override
+		public boolean accept(File dir, String name) {
+			return !name.contains("..") && name.endsWith(".json");
+		}
+	};
+	private static final String[] SUBSCHEMAS = { "clouds.json", "weathergroup.json", "visibility.json", "wind.json",
+			"forecast.json", "weather.json", "metadata.json", "vertical_visibility.json", "changegroup.json",
+			"temperature.json" };
+
 	@Getter
 	private String directory = null;
-	
+
 	@Autowired
+	@Setter
 	private TafValidator tafValidator;
-	
+
+	/**
+	 * One version of the schemas in the store. The parsed schemas are shared by
+	 * all readers, so only copies of them are handed out.
+	 */
+	public static class Schemas {
+		@Getter
+		private final long version;
+		// Changes with the contents of the schemas only
+		@Getter
+		private final String etag;
+		// The json files of the store by file name
+		private final Map<String, String> files;
+		private final Map<String, JsonNode> nodes;
+		private final String[] tafSchemas;
+		// The subschemas, then the latest TAF and the latest enriched TAF schema
+		private final List<String> currentSchemaNames;
+		@Getter
+		private final String latestTafSchema;
+		@Getter
+		private final String latestEnrichedTafSchema;
+		@Getter
+		private final String schemaSchema;
+
+		private Schemas(long version, Map<String, String> files) throws IOException {
+			this.version = version;
+			this.files = Collections.unmodifiableMap(new TreeMap<>(files));
+			Map<String, JsonNode> nodes = new TreeMap<>();
+			List<String> tafSchemaNames = new ArrayList<>();
+			List<String> currentSchemaNames = new ArrayList<>();
+			String latestTafSchemaName = null;
+			String latestEnrichedTafSchemaName = null;
+			for (Map.Entry<String, String> file : this.files.entrySet()) {
+				String name = file.getKey();
+				try {
+					nodes.put(name, ValidationUtils.getJsonNode(file.getValue()));
+				} catch (IOException e) {
+					Debug.errprintln("Schema " + name + " is not valid json: " + e.getMessage());
+				}
+				if (name.contains("taf_schema")) {
+					tafSchemaNames.add(name);
+				} else if (!name.equals(SCHEMA_SCHEMA) && nodes.containsKey(name)) {
+					currentSchemaNames.add(name);
+				}
+			}
+			// Timestamp is in the file so sort files according to this timestamp
+			tafSchemaNames.sort((a, b) -> getTimestamp(a).compareTo(getTimestamp(b)));
+			this.tafSchemas = new String[tafSchemaNames.size()];
+			for (int i = 0; i < tafSchemas.length; i++) {
+				String name = tafSchemaNames.get(i);
+				tafSchemas[i] = this.files.get(name);
+				if (name.contains("enriched_taf_schema")) {
+					latestEnrichedTafSchemaName = name;
+				} else if (!name.contains("enriched")) {
+					latestTafSchemaName = name;
+				}
+			}
+			String latestTafSchema = null;
+			String latestEnrichedTafSchema = null;
+			if (latestTafSchemaName != null) {
+				if (nodes.containsKey(latestTafSchemaName)) {
+					currentSchemaNames.add(latestTafSchemaName);
+				}
+				latestTafSchema = this.files.get(latestTafSchemaName);
+			}
+			if (latestEnrichedTafSchemaName != null) {
+				if (nodes.containsKey(latestEnrichedTafSchemaName)) {
+					currentSchemaNames.add(latestEnrichedTafSchemaName);
+				}
+				latestEnrichedTafSchema = this.files.get(latestEnrichedTafSchemaName);
+			}
+			this.nodes = Collections.unmodifiableMap(nodes);
+			this.currentSchemaNames = Collections.unmodifiableList(currentSchemaNames);
+			this.latestTafSchema = latestTafSchema;
+			this.latestEnrichedTafSchema = latestEnrichedTafSchema;
+			this.schemaSchema = this.files.get(SCHEMA_SCHEMA);
+			this.etag = digest(this.files);
+		}
+
+		private Schemas with(long version, String name, String schema) throws IOException {
+			Map<String, String> files = new TreeMap<>(this.files);
+			files.put(name, schema);
+			removeReplacedDefaults(files);
+			return new Schemas(version, files);
+		}
+
+		/**
+		 * @return the TAF and enriched TAF schemas, oldest first
+		 */
+		public String[] getTafSchemas() {
+			return tafSchemas.clone();
+		}
+
+		public Set<String> getSchemaNames() {
+			return nodes.keySet();
+		}
+
+		/**
+		 * @return the names of the schemas validations use: the subschemas, then the
+		 *         latest TAF schema and the latest enriched TAF schema
+		 */
+		public List<String> getCurrentSchemaNames() {
+			return currentSchemaNames;
+		}
+
+		/**
+		 * @return a copy of the parsed schema with the file name, or null
+		 */
+		public JsonNode getSchemaNode(String name) {
+			JsonNode node = nodes.get(name);
+			return node != null ? node.deepCopy() : null;
+		}
+
+		/**
+		 * @return a copy of the parsed schema at a URI in the {@link #NAMESPACE}, or
+		 *         null
+		 */
+		public JsonNode getSchemaNode(URI uri) {
+			String name = nameOf(uri);
+			return name != null ? getSchemaNode(name) : null;
+		}
+
+		/**
+		 * @return the text of the schema at a URI in the {@link #NAMESPACE}, or null
+		 */
+		public String getSchemaFile(URI uri) {
+			String name = nameOf(uri);
+			return name != null ? files.get(name) : null;
+		}
+
+		private static String nameOf(URI uri) {
+			if (!SCHEME.equals(uri.getScheme()) || uri.getPath() == null || !uri.getPath().startsWith("/")) {
+				return null;
+			}
+			return uri.getPath().substring(1);
+		}
+
+		private static String digest(Map<String, String> files) {
+			try {
+				MessageDigest digest = MessageDigest.getInstance("SHA-1");
+				for (Map.Entry<String, String> file : files.entrySet()) {
+					digest.update(file.getKey().getBytes(StandardCharsets.UTF_8));
+					digest.update((byte) 0);
+					digest.update(file.getValue().getBytes(StandardCharsets.UTF_8));
+					digest.update((byte) 0);
+				}
+				return String.format("%040x", new BigInteger(1, digest.digest()));
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	public static final long DIRECTORY_CHECK_MILLIS = 5000;
+
+	private volatile Schemas schemas = null;
+	// The json files of the directory with their sizes and modification times, when last read
+	private volatile String directoryListing = null;
+	private final AtomicLong nextDirectoryCheck = new AtomicLong();
+	long directoryCheckMillis = DIRECTORY_CHECK_MILLIS;
+
 	public TafSchemaStore(@Value(value = "${productstorelocation}") String productstorelocation) throws IOException {
-	
+
 		String dir = productstorelocation + "/tafs/schemas";
 		Debug.println("TAF SCHEMA STORE at " + dir);
 		File f = new File(dir);
 		if(f.exists() == false){
-			Tools.mksubdirs(f.getAbsolutePath());
-			Debug.println("Creating taf schema store at ["+f.getAbsolutePath()+"]");		
+			try {
+				Tools.mksubdirs(f.getAbsolutePath());
+				Debug.println("Creating taf schema store at ["+f.getAbsolutePath()+"]");
+			} catch (IOException e) {
+				// Validating only needs the schemas on the classpath
+				Debug.errprintln("Unable to create taf schema store, using the default schemas: " + e.getMessage());
+			}
 		}
-		if(f.isDirectory() == false){
+		if(f.exists() && f.isDirectory() == false){
 			Debug.errprintln("Taf directory location is not a directory");
 			throw new NotDirectoryException("Taf directory location is not a directory");
 		}
-		
+
 		this.directory=dir;
 	}
-	
+
+	/**
+	 * Returns the current version of the schemas. The store directory is read
+	 * the first time. After that the listing of the directory is checked at most
+	 * once per {@link #DIRECTORY_CHECK_MILLIS}, the directory is only read again
+	 * when a json file was added, removed or modified.
+	 */
+	public Schemas getSchemas() throws IOException {
+		Schemas current = schemas;
+		if (current == null) {
+			synchronized (this) {
+				current = schemas;
+				if (current == null) {
+					directoryListing = listDirectory();
+					current = new Schemas(1, readSchemaFiles());
+					schemas = current;
+					nextDirectoryCheck.set(System.currentTimeMillis() + directoryCheckMillis);
+				}
+			}
+		} else if (isDirectoryChanged()) {
+			try {
+				current = reload();
+			} catch (IOException e) {
+				Debug.errprintln("Unable to read taf schema store, keeping the schemas: " + e.getMessage());
+			}
+		}
+		return current;
+	}
+
+	/* Only one caller per interval lists the directory, the others keep the current schemas */
+	private boolean isDirectoryChanged() {
+		long now = System.currentTimeMillis();
+		long next = nextDirectoryCheck.get();
+		if (now < next || !nextDirectoryCheck.compareAndSet(next, now + directoryCheckMillis)) {
+			return false;
+		}
+		return !listDirectory().equals(directoryListing);
+	}
+
+	private String listDirectory() {
+		File[] jsonFiles = new File(directory).listFiles(JSON_FILES);
+		if (jsonFiles == null) {
+			return "";
+		}
+		Arrays.sort(jsonFiles);
+		StringBuilder listing = new StringBuilder();
+		for (File f : jsonFiles) {
+			listing.append(f.getName()).append('\0').append(f.length()).append('\0').append(f.lastModified()).append('\n');
+		}
+		return listing.toString();
+	}
+
+	/**
+	 * Reads the store directory again, to pick up schemas that were placed in it
+	 * by hand. A new version is only published when a schema changed, the
+	 * validator compiles it in the background.
+	 */
+	public synchronized Schemas reload() throws IOException {
+		Schemas current = schemas;
+		if (current == null) {
+			return getSchemas();
+		}
+		directoryListing = listDirectory();
+		Schemas read = new Schemas(current.getVersion() + 1, readSchemaFiles());
+		if (!read.getEtag().equals(current.getEtag())) {
+			schemas = read;
+			if (tafValidator != null) {
+				tafValidator.swapSchemas(read);
+			}
+			return read;
+		}
+		return current;
+	}
+
+	/**
+	 * Returns a version string for the schemas in the store, the ETag of the
+	 * current version. It changes whenever a schema is added or modified.
+	 */
+	public String getSchemaVersion() throws IOException {
+		return getSchemas().getEtag();
+	}
+
 	public String getSchemaSchema() throws IOException {
-		String s = null;
-		try {
-			s = Tools.readFile(this.directory + "/taf_jsonschema_schema.json");
-		} catch (IOException e) {
-			Debug.println("taf_jsonschema_schema.json missing: writing to store from resource");
-			s = Tools.readResource("taf_jsonschema_schema.json");
-			Tools.writeFile(this.directory + "/taf_jsonschema_schema.json", s);
+		String s = getSchemas().getSchemaSchema();
+		if (s == null) {
+			throw new IOException(SCHEMA_SCHEMA + " missing from store and classpath");
 		}
 		return s;
 	}
 
-	public void storeTafSchema(String schema, ObjectMapper mapper) throws JsonProcessingException, IOException, ProcessingException {
+	/**
+	 * Stores a schema as the latest TAF schema. The validations use it once the
+	 * validator compiled it.
+	 */
+	public synchronized void storeTafSchema(String schema, ObjectMapper mapper) throws JsonProcessingException, IOException, ProcessingException {
 		JsonNode asJson = mapper.readTree(schema);
 		if (tafValidator.validateSchema(asJson)) {
+			Schemas current = getSchemas();
 			long unixTime = System.currentTimeMillis() / 1000L;
-			String fn=String.format("%s/taf_schema_%s.json", this.directory, unixTime);
-			Tools.writeFile(fn, asJson.toString());
+			String name = String.format("taf_schema_%s.json", unixTime);
+			String content = asJson.toString();
+			writeSchemaFile(name, content);
+			Schemas stored = current.with(current.getVersion() + 1, name, content);
+			schemas = stored;
+			tafValidator.swapSchemas(stored);
 		} else {
 			throw new ProcessingException("Schema is not valid");
 		}
 	}
 
-	private Long getTimestamp(String fname) {
+	private static Long getTimestamp(String fname) {
 		return Long.parseLong(fname.replaceAll("\\D+", ""));
 	}
 
-
 	public String[] getTafSchemas() throws JsonParseException, JsonMappingException, IOException {
-		//Scan directory for tafs
-		File dir=new File(directory);
-		File[] files=dir.listFiles(new FilenameFilter() {
+		return getSchemas().getTafSchemas();
+	}
+
+	public String getLatestEnrichedTafSchema() throws IOException {
+		return getSchemas().getLatestEnrichedTafSchema();
+	}
+
+	public String getLatestTafSchema() throws IOException {
+		return getSchemas().getLatestTafSchema();
+	}
 
-			@Override
-			public boolean accept(File dir, String name) {
-				return !name.contains("..") && name.contains("taf_schema")&&name.endsWith(".json");
+	/* The default schemas, in place of the schemas the store directory does not have */
+	private static class DefaultSchemas {
+		private static final Map<String, String> FILES = readDefaultSchemas();
+
+		private static Map<String, String> readDefaultSchemas() {
+			Map<String, String> files = new TreeMap<>();
+			try {
+				// The oldest schemas, any schema stored replaces them
+				files.put(DEFAULT_TAF_SCHEMA, Tools.readResource("TafValidatorSchema.json"));
+				files.put(DEFAULT_ENRICHED_TAF_SCHEMA, Tools.readResource("EnrichedTafValidatorSchema.json"));
+				for (String subschema : SUBSCHEMAS) {
+					files.put(subschema, Tools.readResource("SubSchemas/" + subschema));
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("Default taf schemas missing from classpath", e);
 			}
-		});
-
-		if (files!=null) {
-			Arrays.sort(files, (a, b) -> getTimestamp(a.getName()).compareTo(getTimestamp(b.getName())));
-			List<String> tafs=new ArrayList<String>();
-			for (File f: files) {
-				byte[] tafBytes = Files.readAllBytes(f.toPath());
-				tafs.add(new String(tafBytes, "utf-8"));
+			try {
+				files.put(SCHEMA_SCHEMA, Tools.readResource(SCHEMA_SCHEMA));
+			} catch (IOException e) {
+				Debug.println(SCHEMA_SCHEMA + " missing from classpath");
 			}
-			
-			return (String[])tafs.toArray();
+			return Collections.unmodifiableMap(files);
 		}
-		return null;
 	}
-	public String getLatestEnrichedTafSchema() throws IOException {
-		File dir=new File(directory);
-		File[] files=dir.listFiles(new FilenameFilter() {
 
-			@Override
-			public boolean accept(File dir, String name) {
-				return !name.contains("..") && name.contains("enriched_taf_schema")&&name.endsWith(".json");
+	/* The default schemas, with the json files of the store directory in their place */
+	private Map<String, String> readSchemaFiles() throws IOException {
+		Map<String, String> files = new TreeMap<>(DefaultSchemas.FILES);
+		File[] jsonFiles = new File(directory).listFiles(JSON_FILES);
+		if (jsonFiles != null) {
+			for (File f : jsonFiles) {
+				files.put(f.getName(), new String(Files.readAllBytes(f.toPath()), "utf-8"));
 			}
-		});
-		
-		// Timestamp is in the file so sort files according to this timestamp
-		// Oldest are first so pick the final element in the array
-		if (files!=null && files.length > 0) {
-			Arrays.sort(files, (a, b) -> getTimestamp(a.getName()).compareTo(getTimestamp(b.getName())));
-			File latest = files[files.length - 1];
-			byte[] bytes = Files.readAllBytes(latest.toPath());
-			return new String(bytes, "utf-8");
-		} else {
-			Debug.errprintln("No enriched taf schemas found, copying one from resources dir");
-			String s = Tools.readResource("EnrichedTafValidatorSchema.json");
-			String fn=String.format("%s/enriched_taf_schema_%d.json",  this.directory, new Date().getTime()/1000);
-			Tools.writeFile(fn, s);
-			return getLatestEnrichedTafSchema();
 		}
-		
-
+		removeReplacedDefaults(files);
+		return files;
 	}
-	public String getLatestTafSchema() throws IOException {
-		File dir=new File(directory);
-		File[] files=dir.listFiles(new FilenameFilter() {
 
-			@Override
-			public boolean accept(File dir, String name) {
-				return !name.contains("..") && name.contains("taf_schema") && !name.contains("enriched") && name.endsWith(".json");
+	/* The default TAF and enriched TAF schemas only stand in for a store without one of its own */
+	private static void removeReplacedDefaults(Map<String, String> files) {
+		boolean hasTafSchema = false;
+		boolean hasEnrichedTafSchema = false;
+		for (String name : files.keySet()) {
+			if (name.contains("enriched_taf_schema")) {
+				hasEnrichedTafSchema |= !name.equals(DEFAULT_ENRICHED_TAF_SCHEMA);
+			} else if (name.contains("taf_schema") && !name.contains("enriched")) {
+				hasTafSchema |= !name.equals(DEFAULT_TAF_SCHEMA);
 			}
-		});
-		
-		// Timestamp is in the file so sort files according to this timestamp
-		// Oldest are first so pick the final element in the array
-		if (files!=null && files.length > 0) {
-			Arrays.sort(files, (a, b) -> getTimestamp(a.getName()).compareTo(getTimestamp(b.getName())));
-			File latest = files[files.length - 1];
-			byte[] bytes = Files.readAllBytes(latest.toPath());
-			String result = new String(bytes, "utf-8");
-			return result;
-		} else {
-			Debug.errprintln("No taf schemas found, copying one from resources dir");
-			String s = Tools.readResource("TafValidatorSchema.json");
-			String fn=String.format("%s/taf_schema_%d.json",  this.directory, new Date().getTime()/1000);
-			Tools.writeFile(fn, s);
-			
-			// Copy subschemas
-			s = Tools.readResource("SubSchemas/clouds.json");
-			fn=String.format("%s/clouds.json",  this.directory);
-			Tools.writeFile(fn, s);
-			
-			s = Tools.readResource("SubSchemas/weathergroup.json");
-			fn=String.format("%s/weathergroup.json",  this.directory);
-			Tools.writeFile(fn, s);
-			
-			s = Tools.readResource("SubSchemas/visibility.json");
-			fn=String.format("%s/visibility.json",  this.directory);
-			Tools.writeFile(fn, s);
-
-			s = Tools.readResource("SubSchemas/wind.json");
-			fn=String.format("%s/wind.json",  this.directory);
-			Tools.writeFile(fn, s);
-			
-			s = Tools.readResource("SubSchemas/forecast.json");
-			fn=String.format("%s/forecast.json",  this.directory);
-			Tools.writeFile(fn, s);
-			
-			s = Tools.readResource("SubSchemas/weather.json");
-			fn=String.format("%s/weather.json",  this.directory);
-			Tools.writeFile(fn, s);
-
-			s = Tools.readResource("SubSchemas/metadata.json");
-			fn=String.format("%s/metadata.json",  this.directory);
-			Tools.writeFile(fn, s);
-
-			s = Tools.readResource("SubSchemas/vertical_visibility.json");
-			fn=String.format("%s/vertical_visibility.json",  this.directory);
-			Tools.writeFile(fn, s);
-
-			s = Tools.readResource("SubSchemas/changegroup.json");
-			fn=String.format("%s/changegroup.json",  this.directory);
-			Tools.writeFile(fn, s);
-
-			s = Tools.readResource("SubSchemas/temperature.json");
-			fn=String.format("%s/temperature.json",  this.directory);
-			Tools.writeFile(fn, s);
-			
-			return getLatestTafSchema();
 		}
+		if (hasTafSchema) {
+			files.remove(DEFAULT_TAF_SCHEMA);
+		}
+		if (hasEnrichedTafSchema) {
+			files.remove(DEFAULT_ENRICHED_TAF_SCHEMA);
+		}
+	}
 
+	/* Writes a schema file such that it is never read half written */
+	private void writeSchemaFile(String name, String schema) throws IOException {
+		Path file = new File(directory, name).toPath();
+		Path tmp = new File(directory, name + ".tmp").toPath();
+		Files.write(tmp, schema.getBytes(StandardCharsets.UTF_8));
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 	}
 }
@@ -0,0 +1,14 @@
+package nl.knmi.geoweb.backend.product.taf;
+
+/**
+ * Receives the time spent in each stage of validating a TAF, so it can be
+ * passed on to any metrics system. Called by the threads validating TAFs, so
+ * implementations must be thread safe.
+ */
+public interface TafValidationMetrics {
+	/**
+	 * @param allocatedBytes
+	 *            the bytes allocated by the stage, or -1 if not measured
+	 */
+	void record(TafValidationStage stage, long nanos, long allocatedBytes);
+}
@@ -0,0 +1,9 @@
+package nl.knmi.geoweb.backend.product.taf;
+
+// How thoroughly a TAF is validated
+public enum TafValidationMode {
+	// Both schemas, the enrichment rules and the TAC check, for saving and publishing
+	FULL,
+	// Only the TAF schema, for quick feedback while editing
+	STRUCTURAL
+}
@@ -1,5 +1,7 @@
 package nl.knmi.geoweb.backend.product.taf;
 
+import java.util.Map;
+
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jsonschema.core.report.ProcessingReport;
 
@@ -26,6 +28,27 @@ public class TafValidationResult {
 	@Setter
 	private ProcessingReport enrichedReport = null;
 
+	// The TAC generated during validation, null if it could not be generated
+	@Getter
+	@Setter
+	private String tac = null;
+
+	// The mode the TAF was validated in
+	@Getter
+	@Setter
+	private TafValidationMode mode = TafValidationMode.FULL;
+
+	// The time and allocated bytes of each stage of the validation, only kept by
+	// a validator in debug mode. A cached result has those of the validation that
+	// made it.
+	@Getter
+	@Setter
+	private Map<TafValidationStage, Long> stageNanos = null;
+
+	@Getter
+	@Setter
+	private Map<TafValidationStage, Long> stageAllocatedBytes = null;
+
 	public TafValidationResult(boolean succeeded) {
 		this(succeeded, null, null, null);
 	}
@@ -44,4 +67,15 @@ public class TafValidationResult {
 		this.structureReport = structureReport;
 		this.enrichedReport = enrichedReport;
 	}
-}
\ No newline at end of file
+
+	// Copies the errors, the reports are shared as they are not changed after validation
+	public TafValidationResult copy() {
+		TafValidationResult copy = new TafValidationResult(succeeded, errors == null ? null : errors.deepCopy(),
+				structureReport, enrichedReport);
+		copy.setTac(tac);
+		copy.setMode(mode);
+		copy.setStageNanos(stageNanos);
+		copy.setStageAllocatedBytes(stageAllocatedBytes);
+		return copy;
+	}
+}
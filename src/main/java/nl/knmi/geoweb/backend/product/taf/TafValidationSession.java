@@ -0,0 +1,114 @@
+package nl.knmi.geoweb.backend.product.taf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+// What the incremental validation of a TAF remembers of the last version of that TAF it validated:
+// for both the TAF schema and the enriched TAF schema, the change groups as they were validated
+// and the errors found in each of them, so that unchanged change groups need not be validated again
+class TafValidationSession {
+
+	// The state of one of the two schema validations
+	static class Pass {
+		private final List<JsonNode> changegroups = new ArrayList<>();
+		private final List<Map<String, Set<String>>> changegroupErrors = new ArrayList<>();
+		private final List<Boolean> changegroupFailed = new ArrayList<>();
+		// False for a change group validated after an earlier error, the validator only checked its top
+		private final List<Boolean> changegroupCheckedInDepth = new ArrayList<>();
+		private Map<String, Set<String>> rootErrors = Collections.emptyMap();
+		private boolean rootFailed = false;
+		// Errors on the changegroups array itself, like maxItems, depend on all change groups
+		private boolean changegroupsFailed = true;
+
+		/**
+		 * @return true if the change groups validated last time can be compared to
+		 *         the given ones one by one
+		 */
+		boolean canReuse(JsonNode changegroups) {
+			return !changegroupsFailed && this.changegroups.size() == changegroups.size();
+		}
+
+		boolean isChanged(int index, JsonNode changegroup) {
+			return !changegroup.equals(changegroups.get(index));
+		}
+
+		void reset(int size) {
+			changegroups.clear();
+			changegroupErrors.clear();
+			changegroupFailed.clear();
+			changegroupCheckedInDepth.clear();
+			for (int i = 0; i < size; i++) {
+				changegroups.add(null);
+				changegroupErrors.add(Collections.emptyMap());
+				changegroupFailed.add(false);
+				changegroupCheckedInDepth.add(false);
+			}
+			rootErrors = Collections.emptyMap();
+			rootFailed = false;
+			changegroupsFailed = true;
+		}
+
+		void setChangegroup(int index, JsonNode changegroup, Map<String, Set<String>> errors, boolean failed,
+				boolean checkedInDepth) {
+			changegroups.set(index, changegroup.deepCopy());
+			changegroupErrors.set(index, errors);
+			changegroupFailed.set(index, failed);
+			changegroupCheckedInDepth.set(index, checkedInDepth);
+		}
+
+		void setRoot(Map<String, Set<String>> errors, boolean failed, boolean changegroupsFailed) {
+			this.rootErrors = errors;
+			this.rootFailed = failed;
+			this.changegroupsFailed = changegroupsFailed;
+		}
+
+		boolean isChangegroupFailed(int index) {
+			return changegroupFailed.get(index);
+		}
+
+		boolean isChangegroupCheckedInDepth(int index) {
+			return changegroupCheckedInDepth.get(index);
+		}
+
+		boolean isFailed() {
+			return rootFailed || changegroupFailed.contains(true);
+		}
+
+		/**
+		 * @return the errors of the root and of all change groups, before reducing
+		 *         them to the most specific ones
+		 */
+		Map<String, Set<String>> getErrors() {
+			Map<String, Set<String>> errors = new HashMap<>(rootErrors);
+			changegroupErrors.forEach(errors::putAll);
+			return errors;
+		}
+	}
+
+	private String schemaVersion = null;
+
+	final Pass structure = new Pass();
+	final Pass enriched = new Pass();
+
+	/**
+	 * Forgets everything when the schemas changed since the last validation
+	 */
+	void useSchemaVersion(String schemaVersion) {
+		if (!schemaVersion.equals(this.schemaVersion)) {
+			reset();
+			this.schemaVersion = schemaVersion;
+		}
+	}
+
+	void reset() {
+		schemaVersion = null;
+		structure.reset(0);
+		enriched.reset(0);
+	}
+}
@@ -0,0 +1,17 @@
+package nl.knmi.geoweb.backend.product.taf;
+
+// The stages of validating a TAF, in the order in which they run
+public enum TafValidationStage {
+	// Getting the compiled schemas, compiling them if the schema store changed
+	SCHEMA_LOADING,
+	// Validating the TAF against the TAF schema
+	STRUCTURE_VALIDATION,
+	// Adding the facts of the enrichment rules to the TAF
+	ENRICH,
+	// Validating the enriched TAF against the enriched schema
+	ENRICHED_VALIDATION,
+	// Turning the reports of both schemas into the human readable errors
+	ERROR_HUMANIZATION,
+	// Generating the TAC of the TAF
+	TAC
+}
@@ -0,0 +1,50 @@
+package nl.knmi.geoweb.backend.product.taf;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the stages of validating TAFs and sums their time and allocated bytes
+ * in memory
+ */
+public class TafValidationStageMetrics implements TafValidationMetrics {
+	private final Map<TafValidationStage, LongAdder> counts = new EnumMap<>(TafValidationStage.class);
+	private final Map<TafValidationStage, LongAdder> nanos = new EnumMap<>(TafValidationStage.class);
+	private final Map<TafValidationStage, LongAdder> allocatedBytes = new EnumMap<>(TafValidationStage.class);
+
+	public TafValidationStageMetrics() {
+		for (TafValidationStage stage : TafValidationStage.values()) {
+			counts.put(stage, new LongAdder());
+			nanos.put(stage, new LongAdder());
+			allocatedBytes.put(stage, new LongAdder());
+		}
+	}
+
+	@Override
+	public void record(TafValidationStage stage, long nanos, long allocatedBytes) {
+		this.counts.get(stage).increment();
+		this.nanos.get(stage).add(nanos);
+		if (allocatedBytes >= 0) {
+			this.allocatedBytes.get(stage).add(allocatedBytes);
+		}
+	}
+
+	public long getCount(TafValidationStage stage) {
+		return counts.get(stage).sum();
+	}
+
+	public long getNanos(TafValidationStage stage) {
+		return nanos.get(stage).sum();
+	}
+
+	// The bytes allocated by the stage, as far as allocations were measured
+	public long getAllocatedBytes(TafValidationStage stage) {
+		return allocatedBytes.get(stage).sum();
+	}
+
+	public double getAverageMillis(TafValidationStage stage) {
+		long count = getCount(stage);
+		return count == 0 ? 0 : getNanos(stage) / 1e6 / count;
+	}
+}
@@ -0,0 +1,79 @@
+package nl.knmi.geoweb.backend.product.taf;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Times the stages of one validation of a TAF, on the thread validating it,
+ * and records them in the metrics. The stages run one after the other, so
+ * only one stage is timed at a time.
+ */
+class TafValidationStageTimer {
+	private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+	private final TafValidationMetrics metrics;
+	private final boolean measuringAllocations;
+	// The time and allocated bytes of each stage of this validation, if kept for the result
+	private final Map<TafValidationStage, Long> stageNanos;
+	private final Map<TafValidationStage, Long> stageAllocatedBytes;
+	private long startNanos;
+	private long startBytes;
+
+	TafValidationStageTimer(TafValidationMetrics metrics, boolean measuringAllocations, boolean keepingStages) {
+		this.metrics = metrics;
+		this.measuringAllocations = measuringAllocations && isAllocationMeasurable();
+		this.stageNanos = keepingStages ? new EnumMap<>(TafValidationStage.class) : null;
+		this.stageAllocatedBytes = keepingStages && this.measuringAllocations
+				? new EnumMap<>(TafValidationStage.class)
+				: null;
+	}
+
+	static boolean isAllocationMeasurable() {
+		return threadMXBean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()
+				&& ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled();
+	}
+
+	private long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	void start() {
+		if (measuringAllocations) {
+			startBytes = allocatedBytes();
+		}
+		startNanos = System.nanoTime();
+	}
+
+	void stop(TafValidationStage stage) {
+		long nanos = System.nanoTime() - startNanos;
+		long bytes = measuringAllocations ? allocatedBytes() - startBytes : -1;
+		if (metrics != null) {
+			metrics.record(stage, nanos, bytes);
+		}
+		if (stageNanos != null) {
+			// The humanization of the errors of both schemas is one stage
+			stageNanos.merge(stage, nanos, Long::sum);
+		}
+		if (stageAllocatedBytes != null) {
+			stageAllocatedBytes.merge(stage, bytes, Long::sum);
+		}
+	}
+
+	/**
+	 * @return the time of each stage that ran, or null if not kept
+	 */
+	Map<TafValidationStage, Long> getStageNanos() {
+		return stageNanos;
+	}
+
+	/**
+	 * @return the bytes allocated by each stage that ran, or null if not kept or
+	 *         not measured
+	 */
+	Map<TafValidationStage, Long> getStageAllocatedBytes() {
+		return stageAllocatedBytes;
+	}
+}
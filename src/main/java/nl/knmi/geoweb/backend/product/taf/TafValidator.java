@@ -1,17 +1,32 @@
 package nl.knmi.geoweb.backend.product.taf;
 
+import static nl.knmi.geoweb.backend.product.taf.augment.AugmentRuleRegistry.fields;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -21,10 +36,9 @@ import java.util.stream.StreamSupport;
 import org.json.JSONException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Component;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -37,6 +51,7 @@ import com.github.fge.jsonschema.core.load.configuration.LoadingConfiguration;
 import com.github.fge.jsonschema.core.load.uri.URITranslatorConfiguration;
 import com.github.fge.jsonschema.core.report.ListReportProvider;
 import com.github.fge.jsonschema.core.report.LogLevel;
+import com.github.fge.jsonschema.core.report.ProcessingMessage;
 import com.github.fge.jsonschema.core.report.ProcessingReport;
 import com.github.fge.jsonschema.main.JsonSchema;
 import com.github.fge.jsonschema.main.JsonSchemaFactory;
@@ -44,7 +59,7 @@ import com.github.fge.jsonschema.main.JsonSchemaFactory;
 import lombok.Getter;
 import lombok.Setter;
 import nl.knmi.adaguc.tools.Debug;
-import nl.knmi.geoweb.backend.product.taf.augment.AugmentAmountCoverageClouds;
+import nl.knmi.geoweb.backend.product.ValidationResultCache;
 import nl.knmi.geoweb.backend.product.taf.augment.AugmentAscendingHeightClouds;
 import nl.knmi.geoweb.backend.product.taf.augment.AugmentChangegroupDuration;
 import nl.knmi.geoweb.backend.product.taf.augment.AugmentChangegroupsIncreasingInTime;
@@ -54,9 +69,14 @@ import nl.knmi.geoweb.backend.product.taf.augment.AugmentMaxVerticalVisibility;
 import nl.knmi.geoweb.backend.product.taf.augment.AugmentMaxVisibility;
 import nl.knmi.geoweb.backend.product.taf.augment.AugmentNonRepeatingChanges;
 import nl.knmi.geoweb.backend.product.taf.augment.AugmentOverlappingBecomingChangegroups;
+import nl.knmi.geoweb.backend.product.taf.augment.AugmentRule;
+import nl.knmi.geoweb.backend.product.taf.augment.AugmentRuleRegistry;
+import nl.knmi.geoweb.backend.product.taf.augment.AugmentTimings;
 import nl.knmi.geoweb.backend.product.taf.augment.AugmentVisibilityWeatherRequired;
 import nl.knmi.geoweb.backend.product.taf.augment.AugmentWindEnoughChange;
 import nl.knmi.geoweb.backend.product.taf.augment.AugmentWindGust;
+import nl.knmi.geoweb.backend.product.taf.augment.TafAugmenter;
+import nl.knmi.geoweb.backend.product.taf.augment.TafWindFacts;
 
 @Component
 public class TafValidator {
@@ -67,14 +87,191 @@ public class TafValidator {
 
 	TafSchemaStore tafSchemaStore;
 
+	/**
+	 * The TAF and enriched TAF schemas of one version of the schema store,
+	 * compiled once and shared by all validations, together with the custom
+	 * error messages of all schemas in the store
+	 */
+	private static class CompiledTafSchemas {
+		private final String version;
+		// The version of the schema store the schemas were compiled from
+		private final long storeVersion;
+		private final JsonSchemaFactory factory;
+		private final SchemaValidation tafSchema;
+		private final SchemaValidation enrichedTafSchema;
+		private final Map<String, Map<String, String>> messages;
+
+		private CompiledTafSchemas(String version, long storeVersion, JsonSchemaFactory factory,
+				SchemaValidation tafSchema, SchemaValidation enrichedTafSchema,
+				Map<String, Map<String, String>> messages) {
+			this.version = version;
+			this.storeVersion = storeVersion;
+			this.factory = factory;
+			this.tafSchema = tafSchema;
+			this.enrichedTafSchema = enrichedTafSchema;
+			this.messages = messages;
+		}
+	}
+
+	/**
+	 * A compiled schema, either a SchemaProgram or a JsonSchema of the
+	 * json-schema-validator library
+	 */
+	private interface SchemaValidation {
+		ProcessingReport validate(JsonNode jsonNode) throws ProcessingException;
+	}
+
+	private volatile CompiledTafSchemas compiledTafSchemas;
+
+	// Compiles the schemas of new versions of the store, away from the validations
+	private final ExecutorService schemaCompiler = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "taf-schema-compiler");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Object schemaSwapLock = new Object();
+	private long schemaSwapVersion = 0;
+	private CompletableFuture<Boolean> schemaSwap = CompletableFuture.completedFuture(false);
+
+	private static final int WARMUP_TAFS = 8;
+	// The last TAFs validated, to warm up newly compiled schemas with
+	private final AtomicReferenceArray<String> warmupTafs = new AtomicReferenceArray<>(WARMUP_TAFS);
+	private final AtomicInteger warmupTafCount = new AtomicInteger();
+
+	// The compiled schema-schema, by the text it was compiled from
+	private volatile Map.Entry<String, JsonSchema> schemaSchema;
+
+	private static final int RESULT_CACHE_ENTRIES = 1000;
+	private static final long RESULT_CACHE_BYTES = 32L * 1024 * 1024;
+
+	@Getter
+	private final ValidationResultCache<TafValidationResult> resultCache = new ValidationResultCache<>(
+			RESULT_CACHE_ENTRIES, RESULT_CACHE_BYTES, TafValidationResult::copy, TafValidator::estimateBytes);
+
+	private static final int MAX_SESSIONS = 256;
+
+	// Where the time spent in each stage of the validations is recorded
+	@Getter
+	@Setter
+	private TafValidationMetrics metrics = new TafValidationStageMetrics();
+
+	// Whether the bytes allocated in each stage are recorded too
+	@Getter
+	@Setter
+	private boolean measuringAllocations = false;
+
+	// Whether the results include the time spent in each stage of the validation
+	@Getter
+	@Setter
+	private boolean debug = false;
+
+	// Incremental validation sessions by TAF uuid, least recently used first
+	private final Map<String, TafValidationSession> sessions = new LinkedHashMap<String, TafValidationSession>(16,
+			0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, TafValidationSession> eldest) {
+			return size() > MAX_SESSIONS;
+		}
+	};
+
 	public TafValidator(final TafSchemaStore tafSchemaStore, ObjectMapper om) throws IOException {
 		this.tafSchemaStore = tafSchemaStore;
 		this.objectMapper=om;
 	}
 
+	/**
+	 * The TAF under validation, as json tree and as typed object, each built
+	 * once and handed to every stage of the validation. The stages may change
+	 * the tree, the typed object is left as it is. The TAC is generated from the
+	 * typed object during validation and returned with the result.
+	 */
+	private static class TafValidationContext {
+		private final JsonNode jsonNode;
+		private final Taf taf;
+		private final TafValidationMode mode;
+		// The json was serialized from the typed object, so both hold the same values
+		private final boolean serialized;
+		private String tac;
+		private final TafValidationStageTimer timer;
+		// The timings of the enrichment rules, if they are timed
+		private AugmentTimings augmentTimings;
+
+		private TafValidationContext(JsonNode jsonNode, Taf taf, TafValidationMode mode, boolean serialized,
+				TafValidationStageTimer timer) {
+			this.jsonNode = jsonNode;
+			this.taf = taf;
+			this.mode = mode;
+			this.serialized = serialized;
+			this.timer = timer;
+		}
+	}
+
 	public TafValidationResult validate(Taf taf)
 			throws IOException, ProcessingException, JSONException, ParseException {
-		return validate(taf.toJSON(objectMapper));
+		return validate(taf, TafValidationMode.FULL);
+	}
+
+	public TafValidationResult validate(Taf taf, TafValidationMode mode)
+			throws IOException, ProcessingException, JSONException, ParseException {
+		return validate(ValidationUtils.getJsonNode(taf.toJSON(objectMapper)), taf, mode, true, null, null);
+	}
+
+	/**
+	 * Validates a batch of TAFs concurrently, using at most one thread per
+	 * available processor. All TAFs are validated against the schemas compiled
+	 * when the batch starts, also when the schemas are swapped during the
+	 * batch. A TAF that cannot be validated at all gets a failed result, it
+	 * does not fail the batch.
+	 *
+	 * @return the results in the order of the given TAFs
+	 */
+	public TafBatchValidationResult validateAll(List<String> tafStrs)
+			throws IOException, ProcessingException, InterruptedException {
+		return validateAll(tafStrs, Runtime.getRuntime().availableProcessors());
+	}
+
+	public TafBatchValidationResult validateAll(List<String> tafStrs, int maxThreads)
+			throws IOException, ProcessingException, InterruptedException {
+		long start = System.nanoTime();
+		// Compile the schemas once, before the threads need them
+		CompiledTafSchemas schemas = getCompiledTafSchemas();
+
+		int threads = Math.max(1, Math.min(maxThreads, tafStrs.size()));
+		long[] validationNanos = new long[tafStrs.size()];
+		AugmentTimings augmentTimings = new AugmentTimings(AUGMENT_RULES);
+		List<Callable<TafValidationResult>> tasks = new ArrayList<>(tafStrs.size());
+		for (int i = 0; i < tafStrs.size(); i++) {
+			final int index = i;
+			tasks.add(() -> {
+				long tafStart = System.nanoTime();
+				try {
+					return validate(ValidationUtils.getJsonNode(tafStrs.get(index)), null, TafValidationMode.FULL, false,
+							schemas, augmentTimings);
+				} finally {
+					validationNanos[index] = System.nanoTime() - tafStart;
+				}
+			});
+		}
+
+		List<TafValidationResult> results = new ArrayList<>(tafStrs.size());
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (Future<TafValidationResult> future : executor.invokeAll(tasks)) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					Debug.errprintln("Unable to validate TAF: " + e.getCause());
+					results.add(new TafValidationResult(false, (ObjectNode) new ObjectMapper()
+							.readTree("{\"/forecast/message\": [\"Unable to validate TAF\"]}")));
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return new TafBatchValidationResult(results, System.nanoTime() - start, Arrays.stream(validationNanos).sum(),
+				threads, augmentTimings.getNanosByRule());
 	}
 
 	static Map<JsonPointer, String> customMessages;
@@ -152,7 +349,7 @@ public class TafValidator {
 
 				if (node.isObject()) {
 					Iterable<Map.Entry<String, JsonNode>> fieldsIterable = () -> node.fields();
-					StreamSupport.stream(fieldsIterable.spliterator(), true).forEach(field -> {
+					StreamSupport.stream(fieldsIterable.spliterator(), false).forEach(field -> {
 						String fieldName = field.getKey();
 						JsonPointer childPointer = localParentPointer.append(fieldName);
 						if (localFieldNamePredicate.test(fieldName)) {
@@ -257,22 +454,37 @@ public class TafValidator {
 		return pathSet;
 	}
 
-	public static int LCSLength(String a, String b) {
-		int[][] lengths = new int[a.length() + 1][b.length() + 1];
-
-		// row 0 and column 0 are initialized to 0 already
-
-		for (int i = 0; i < a.length(); i++)
-			for (int j = 0; j < b.length(); j++)
-				if (a.charAt(i) == b.charAt(j))
-					lengths[i + 1][j + 1] = lengths[i][j] + 1;
-				else
-					lengths[i + 1][j + 1] = Math.max(lengths[i + 1][j], lengths[i][j + 1]);
-		return lengths[a.length()][b.length()];
+	/**
+	 * Keeps only the most specific errors: an error on a pointer is dropped when
+	 * there also is an error on one of its descendants, so an error on
+	 * /forecast/wind is dropped in favour of one on /forecast/wind/unit.
+	 */
+	static Map<String, Set<String>> mostSpecificErrors(Map<String, Set<String>> errorMessages) {
+		// All pointers that have an error on a descendant, ancestors are found by
+		// stripping the last reference token until the root is reached
+		Set<String> ancestors = new HashSet<>();
+		for (String pointer : errorMessages.keySet()) {
+			int slash = pointer.lastIndexOf('/');
+			while (slash >= 0 && ancestors.add(pointer.substring(0, slash))) {
+				slash = pointer.lastIndexOf('/', slash - 1);
+			}
+		}
+		Map<String, Set<String>> finalErrors = new HashMap<>();
+		errorMessages.forEach((pointer, messages) -> {
+			if (!ancestors.contains(pointer)) {
+				finalErrors.put(pointer, messages);
+			}
+		});
+		return finalErrors;
 	}
 
 	private static Map<String, Set<String>> convertReportInHumanReadableErrors(ProcessingReport validationReport,
 			Map<String, Map<String, String>> messagesMap) {
+		return mostSpecificErrors(humanReadableErrors(validationReport, messagesMap));
+	}
+
+	private static Map<String, Set<String>> humanReadableErrors(ProcessingReport validationReport,
+			Map<String, Map<String, String>> messagesMap) {
 		Map<String, Set<String>> errorMessages = new HashMap<>();
 		validationReport.forEach(report -> {
 			Map<String, Set<String>> errors = pointersOfSchemaErrors(report.asJson());
@@ -302,38 +514,15 @@ public class TafValidator {
 				});
 			});
 		});
-		List<String> keys = errorMessages.keySet().stream().collect(Collectors.toList());
-		Map<String, Set<String>> finalErrors = new HashMap<>();
-		if (keys.size() == 0) {
-			return finalErrors;
-		}
-		Collections.sort(keys);
-		final double SAME_RATIO = 1.0;
-		for (int i = 0; i < keys.size(); ++i) {
-			for (int j = i + 1; j < keys.size(); ++j) {
-				int lcs = LCSLength(keys.get(i), keys.get(j));
-				if (((double) lcs / (double) keys.get(i).length()) < SAME_RATIO) {
-					finalErrors.put(keys.get(i), errorMessages.get(keys.get(i)));
-					break;
-				}
-			}
-		}
-		String lastKey = keys.get(keys.size() - 1);
-		finalErrors.put(lastKey, errorMessages.get(lastKey));
-		return finalErrors;
+		return errorMessages;
 	}
 
-	private static Map<String, Map<String, String>> extractMessagesAndCleanseSchema(List<Resource> schemaNodes) {
-		return schemaNodes.stream().map(schemaNodePath -> {
-			try {
-				return extractMessagesAndCleanseSchema(ValidationUtils.getJsonNode(schemaNodePath.getFile()));
-			} catch (IOException e) {
-				return null;
-			}
-		}).collect(Collectors.toList())
-				.stream()
+	/* Older TAF schema versions point to the same places, so only the current schemas count and the latest wins */
+	private static Map<String, Map<String, String>> extractMessagesAndCleanseSchema(TafSchemaStore.Schemas schemas) {
+		return schemas.getCurrentSchemaNames().stream()
+				.map(name -> extractMessagesAndCleanseSchema(schemas.getSchemaNode(name)))
 				.flatMap(m -> m.entrySet().stream())
-				.collect(Collectors.toMap(Entry::getKey, Entry::getValue));
+				.collect(Collectors.toMap(Entry::getKey, Entry::getValue, (older, newer) -> newer));
 	}
 
 	@SuppressWarnings("unchecked")
@@ -359,55 +548,124 @@ public class TafValidator {
 		return messagesMap;
 	}
 
-	private List<Resource> discoverSchemata(String schemaResourceLocation) {
-		//		log.debug("Discovering all available validation schemata... ");
-		List<Resource> resultList = new ArrayList<Resource>();
-		try {
-			String locationPattern = "file:" + schemaResourceLocation + "**/*.json";
-			//			log.debug("Exploring schemata location: [{}]", locationPattern);
-			PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(
-					getClass().getClassLoader());
-			resultList = Arrays.asList(resolver.getResources(locationPattern));
-			if (resultList.isEmpty()) {
-				throw new Exception(String.format("Empty files list while discovering schemata"));
-			}
-		} catch (Exception exception) {
-			throw new IllegalStateException(
-					String.format("Could not discover the configuration files containing the validation rules"));
-		}
-		return resultList;
-	}
-
 	public boolean validateSchema(JsonNode schema) throws IOException, ProcessingException {
 		JsonNode cpy = schema.deepCopy();
 		removeGeowebPrefixedFields(cpy);
 		String schemaschemaString = tafSchemaStore.getSchemaSchema();
-		ObjectMapper om = new ObjectMapper();
-		final JsonSchemaFactory factory = JsonSchemaFactory.byDefault();
-		final JsonSchema schemaschema = factory.getJsonSchema(om.readTree(schemaschemaString));
+		Map.Entry<String, JsonSchema> compiled = schemaSchema;
+		if (compiled == null || !compiled.getKey().equals(schemaschemaString)) {
+			ObjectMapper om = new ObjectMapper();
+			final JsonSchemaFactory factory = JsonSchemaFactory.byDefault();
+			compiled = new AbstractMap.SimpleImmutableEntry<>(schemaschemaString,
+					factory.getJsonSchema(om.readTree(schemaschemaString)));
+			schemaSchema = compiled;
+		}
 
-		ProcessingReport validReport = schemaschema.validate(cpy);
+		ProcessingReport validReport = compiled.getValue().validate(cpy);
 
 		return validReport.isSuccess();
 	}
 
+	/**
+	 * The rules enriching a TAF, with what they read and write
+	 */
+	public static final AugmentRuleRegistry AUGMENT_RULES = new AugmentRuleRegistry()
+			.register("AugmentChangegroupsIncreasingInTime", AugmentChangegroupsIncreasingInTime::new,
+					fields("validityStart", "changegroup.changeStart", "changegroup.changeType"),
+					fields("changegroup.changegroupsAscending"))
+			.register("AugmentOverlappingBecomingChangegroups", AugmentOverlappingBecomingChangegroups::new,
+					fields("validityStart", "validityEnd", "changegroup.changeStart", "changegroup.changeEnd",
+							"changegroup.changeType"),
+					fields("changegroup.changegroupDateOutsideRange", "changegroup.changegroupBecomingOverlaps"))
+			.register("AugmentChangegroupDuration", AugmentChangegroupDuration::new,
+					fields("validityEnd", "changegroup.changeStart", "changegroup.changeEnd"),
+					fields("changegroup.changeDurationInHours"))
+			.register("AugmentWindGust", AugmentWindGust::new,
+					fields("forecast.wind.gusts", "forecast.wind.speed"),
+					fields("forecast.wind.gustFastEnough"))
+			.register("AugmentAscendingHeightClouds", AugmentAscendingHeightClouds::new,
+					fields("forecast.clouds"),
+					fields("forecast.clouds.cloudsHeightAscending"))
+			.register("AugmentEndTimes", AugmentEndTimes::new,
+					fields("validityEnd", "changegroup.changeStart", "changegroup.changeEnd"),
+					fields("changegroup.endAfterStart", "changegroup.changeEndAfterEnd"))
+			.register("AugmentVisibilityWeatherRequired", AugmentVisibilityWeatherRequired::new,
+					fields("forecast.visibility", "forecast.weather", "changegroup.changeType"),
+					fields("forecast.visibilityWeatherRequiredAndPresent"))
+			.register("AugmentWindEnoughChange", AugmentWindEnoughChange::new,
+					fields("forecast.wind.direction", "forecast.wind.speed", "forecast.wind.gusts",
+							"forecast.wind.unit", "changegroup.changeType"),
+					fields("forecast.wind.directionDiff", "forecast.wind.speedDiff",
+							"forecast.wind.windEnoughDifference"))
+			.registerTyped("TafWindFacts", TafWindFacts::of,
+					fields("forecast.wind.direction", "forecast.wind.speed", "forecast.wind.gusts",
+							"forecast.wind.unit", "changegroup.changeType"),
+					fields("forecast.wind.gustFastEnough", "forecast.wind.directionDiff", "forecast.wind.speedDiff",
+							"forecast.wind.windEnoughDifference"),
+					"AugmentWindGust", "AugmentWindEnoughChange")
+			.register("AugmentCloudNeededRainOrModifierNecessary", AugmentCloudNeededRainOrModifierNecessary::new,
+					fields("forecast.clouds", "forecast.weather", "changegroup.changeType"),
+					fields("forecast.cloudsNeededAndPresent", "forecast.cloudsCBNeededAndPresent",
+							"forecast.cloudsCBorTCUNeededAndPresent", "forecast.cloudsModifierHasWeatherPresent"))
+			.register("AugmentMaxVisibility", AugmentMaxVisibility::new,
+					fields("forecast.weather", "forecast.visibility", "changegroup.changeType"),
+					fields("forecast.visibilityWithinLimit", "forecast.visibilityAndFogWithoutDescriptorWithinLimit"))
+			.register("AugmentNonRepeatingChanges", AugmentNonRepeatingChanges::new,
+					fields("forecast.wind", "forecast.visibility", "forecast.weather", "forecast.clouds",
+							"changegroup.changeType"),
+					fields("forecast.weather", "changegroup.repeatingChange"))
+			.register("AugmentMaxVerticalVisibility", AugmentMaxVerticalVisibility::new,
+					fields("forecast.vertical_visibility", "forecast.weather", "forecast.visibility"),
+					fields("forecast.verticalVisibilityAndFogWithinLimit",
+							"forecast.verticalVisibilityAndPrecipitationWithinLimit"));
+
 	public static void enrich(JsonNode input) throws ParseException, JsonProcessingException, IOException {
-		AugmentChangegroupsIncreasingInTime.augment(input);
-		AugmentOverlappingBecomingChangegroups.augment(input);
-		AugmentChangegroupDuration.augment(input);					
-		AugmentWindGust.augment(input);								
-		AugmentAscendingHeightClouds.augment(input);				//Done
-		//AugmentAmountCoverageClouds.augment(input);
-		AugmentEndTimes.augment(input);
-		AugmentVisibilityWeatherRequired.augment(input);
-		AugmentWindEnoughChange.augment(input);						// FM Done
-		AugmentCloudNeededRainOrModifierNecessary.augment(input);
-		AugmentMaxVisibility.augment(input);
-		AugmentNonRepeatingChanges.augment(input);					// FM Done
-		AugmentMaxVerticalVisibility.augment(input);
+		enrich(input, null, null);
+	}
+
+	/**
+	 * Enriches the json of a TAF, with the rules derived from the typed TAF if
+	 * given. The rules run together in one pass over the TAF.
+	 *
+	 * @param taf
+	 *            the typed TAF the json is serialized from without its null
+	 *            fields, or null
+	 * @param timings
+	 *            the timings to add the time spent in each rule to, or null
+	 */
+	private static void enrich(JsonNode input, Taf taf, AugmentTimings timings)
+			throws ParseException, JsonProcessingException, IOException {
+		AugmentRule[] rules = AUGMENT_RULES.createRules(taf);
+		long[] ruleNanos = timings != null ? timings.newRuleNanos() : null;
+		try {
+			TafAugmenter.augment(input, ruleNanos, rules);
+		} finally {
+			if (timings != null) {
+				timings.add(ruleNanos);
+			}
+		}
 		//		Debug.println(input.toString());
 	}
 
+	private TafValidationStageTimer newStageTimer() {
+		return new TafValidationStageTimer(metrics, measuringAllocations, debug);
+	}
+
+	/**
+	 * @return true if the object mapper leaves out the null fields of the wind in
+	 *         the json of a TAF, as the rules derived from the typed TAF expect
+	 */
+	private boolean isWritingNonNullFields() {
+		for (Class<?> type : new Class<?>[] { Taf.Forecast.class, Taf.Forecast.TAFWind.class,
+				Taf.ChangeForecast.class }) {
+			if (objectMapper.getSerializationConfig().getDefaultPropertyInclusion(type)
+					.getValueInclusion() != JsonInclude.Include.NON_NULL) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Returns true if this node has a value
 	 * @param node
@@ -442,7 +700,84 @@ public class TafValidator {
 	}
 
 	public DualReturn performValidation(String schemaFile, JsonNode jsonNode) throws IOException, ProcessingException {
-		JsonNode schemaNode = ValidationUtils.getJsonNode(schemaFile);
+		CompiledTafSchemas schemas = getCompiledTafSchemas();
+		return performValidation(schemas.factory.getJsonSchema(ValidationUtils.getJsonNode(schemaFile))::validate,
+				jsonNode, schemas.messages);
+	}
+
+	private DualReturn performValidation(SchemaValidation schema, JsonNode jsonNode,
+			Map<String, Map<String, String>> messagesMap) throws ProcessingException {
+		// Try and validate the TAF
+		ProcessingReport validationReport = schema.validate(jsonNode);
+		return new DualReturn(validationReport, messagesMap);
+	}
+
+	private static JsonSchemaFactory createSchemaFactory(TafSchemaStore.Schemas schemas) {
+		// Set the namespace to the schemas of the store such that external schemas can be resolved
+		URITranslatorConfiguration uribuilder = URITranslatorConfiguration.newBuilder()
+				.setNamespace(TafSchemaStore.NAMESPACE).freeze();
+		LoadingConfiguration config = LoadingConfiguration
+				.newBuilder()
+				.setURITranslatorConfiguration(uribuilder)
+				.addScheme(TafSchemaStore.SCHEME, uri -> {
+					String schema = schemas.getSchemaFile(uri);
+					if (schema == null) {
+						throw new FileNotFoundException(uri.toString());
+					}
+					return new ByteArrayInputStream(schema.getBytes(StandardCharsets.UTF_8));
+				})
+				.freeze();
+		return JsonSchemaFactory
+				.newBuilder()
+				.setReportProvider(new ListReportProvider(LogLevel.ERROR, LogLevel.FATAL))
+				.setLoadingConfiguration(config)
+				.freeze();
+	}
+
+	/**
+	 * Compiles a schema into a SchemaProgram, which gives the same reports as the
+	 * json-schema-validator library in a fraction of the time. Schemas using
+	 * keywords the SchemaProgram does not support are left to the library.
+	 */
+	private static SchemaValidation compileSchema(JsonSchemaFactory factory, TafSchemaStore.Schemas schemas,
+			String schemaString) throws IOException, ProcessingException {
+		JsonNode schema = ValidationUtils.getJsonNode(schemaString);
+		try {
+			return SchemaProgram.compile(schema, TafSchemaStore.NAMESPACE, schemas::getSchemaNode)::validate;
+		} catch (IllegalArgumentException e) {
+			Debug.println("Validating with the generic schema validator: " + e.getMessage());
+			return factory.getJsonSchema(schema)::validate;
+		}
+	}
+
+	/**
+	 * Returns the compiled schemas for the current version of the schema store.
+	 * Only the first schemas are compiled by the validation asking for them.
+	 * Newer versions of the store are compiled by {@link #swapSchemas}, until
+	 * then the validations keep using the schemas they have.
+	 */
+	private CompiledTafSchemas getCompiledTafSchemas() throws IOException, ProcessingException {
+		TafSchemaStore.Schemas current = tafSchemaStore.getSchemas();
+		CompiledTafSchemas compiled = compiledTafSchemas;
+		if (compiled != null) {
+			if (!compiled.version.equals(current.getEtag()) && compiled.storeVersion < current.getVersion()) {
+				swapSchemas(current);
+			}
+			return compiled;
+		}
+		synchronized (this) {
+			compiled = compiledTafSchemas;
+			if (compiled == null) {
+				compiled = compileSchemas(current);
+				compiledTafSchemas = compiled;
+			}
+			return compiled;
+		}
+	}
+
+	private static CompiledTafSchemas compileSchemas(TafSchemaStore.Schemas schemas)
+			throws IOException, ProcessingException {
+		JsonSchemaFactory factory = createSchemaFactory(schemas);
 		// This extracts the custom error messages in the JSONSchema and removes them
 		// This is necessary because otherwise the schema is invalid and thus always
 		// needs to happen.
@@ -453,27 +788,74 @@ public class TafValidator {
 		// greater than 0 meters"
 		// |-> maximum -> "Vertical visibility must be less than 1000 meters"
 		// |-> multipleOf -> "Vertical visibility must a multiple of 30 meters"
-		Map<String, Map<String, String>> messagesMap = extractMessagesAndCleanseSchema(discoverSchemata(this.tafSchemaStore.getDirectory()));
-		// Construct the final schema based on the filtered schema
-		// Set the namespace to the tafstore location such that external schemas can be resolved
-		URITranslatorConfiguration uribuilder = URITranslatorConfiguration.newBuilder()
-				.setNamespace("file:"+this.tafSchemaStore.getDirectory()+"/").freeze();
-		LoadingConfiguration config = LoadingConfiguration
-				.newBuilder()
-				.setURITranslatorConfiguration(uribuilder)
-				.freeze();		
-		final JsonSchemaFactory factory = JsonSchemaFactory
-				.newBuilder()
-				.setReportProvider(new ListReportProvider(LogLevel.ERROR, LogLevel.FATAL))
-				.setLoadingConfiguration(config)
-				.freeze();
+		Map<String, Map<String, String>> messagesMap = extractMessagesAndCleanseSchema(schemas);
+		return new CompiledTafSchemas(schemas.getEtag(), schemas.getVersion(), factory,
+				compileSchema(factory, schemas, schemas.getLatestTafSchema()),
+				compileSchema(factory, schemas, schemas.getLatestEnrichedTafSchema()),
+				Collections.unmodifiableMap(messagesMap));
+	}
 
+	/**
+	 * Compiles the schemas of a version of the store in the background, warms
+	 * them up on the last TAFs validated and then uses them for the validations
+	 * that start after. Validations that already started finish with the
+	 * schemas they started with. When the new schemas fail, the validations
+	 * keep using the schemas they have.
+	 *
+	 * @return whether the schemas were swapped in, once they are
+	 */
+	public CompletableFuture<Boolean> swapSchemas(TafSchemaStore.Schemas schemas) {
+		synchronized (schemaSwapLock) {
+			if (schemas.getVersion() > schemaSwapVersion) {
+				schemaSwapVersion = schemas.getVersion();
+				schemaSwap = CompletableFuture.supplyAsync(() -> compileAndSwapSchemas(schemas), schemaCompiler);
+			}
+			return schemaSwap;
+		}
+	}
 
-		final JsonSchema schema = factory.getJsonSchema(schemaNode);
-		// Try and validate the TAF
+	private boolean compileAndSwapSchemas(TafSchemaStore.Schemas schemas) {
+		CompiledTafSchemas compiled;
+		try {
+			compiled = compileSchemas(schemas);
+			warmUp(compiled);
+		} catch (Exception e) {
+			Debug.errprintln("Unable to use taf schemas version " + schemas.getVersion() + ": " + e);
+			return false;
+		}
+		synchronized (this) {
+			CompiledTafSchemas current = compiledTafSchemas;
+			if (current != null && current.storeVersion >= compiled.storeVersion) {
+				return false;
+			}
+			compiledTafSchemas = compiled;
+		}
+		Debug.println("Validating with taf schemas version " + schemas.getVersion());
+		return true;
+	}
 
-		ProcessingReport validationReport = schema.validate(jsonNode);
-		return new DualReturn(validationReport, messagesMap);
+	/* Validates the last TAFs validated with the schemas, without keeping the results */
+	private void warmUp(CompiledTafSchemas schemas)
+			throws IOException, ProcessingException, JSONException, ParseException {
+		for (int i = 0; i < WARMUP_TAFS; i++) {
+			String tafStr = warmupTafs.get(i);
+			if (tafStr == null) {
+				continue;
+			}
+			JsonNode jsonNode = ValidationUtils.getJsonNode(tafStr);
+			Taf taf = null;
+			try {
+				taf = objectMapper.treeToValue(jsonNode, Taf.class);
+			} catch (Exception e) {
+				// Reported as a TAC failure by the validation
+			}
+			validate(new TafValidationContext(jsonNode, taf, TafValidationMode.FULL, false,
+					new TafValidationStageTimer(null, false, false)), schemas);
+		}
+	}
+
+	private void addWarmupTaf(String tafStr) {
+		warmupTafs.lazySet(Math.floorMod(warmupTafCount.getAndIncrement(), WARMUP_TAFS), tafStr);
 	}
 
 	private static void removeLastEmptyChangegroup(JsonNode jsonNode) {
@@ -528,10 +910,334 @@ public class TafValidator {
 		//		Debug.println("Validate\n" + tafStr);
 		//		System.out.println(discoverSchemata(this.tafSchemaStore.getDirectory()));
 
-		String schemaFile = tafSchemaStore.getLatestTafSchema();
+		return validate(tafStr, TafValidationMode.FULL);
+	}
+
+	/**
+	 * Validates a TAF in the given mode. In STRUCTURAL mode only the TAF schema
+	 * is checked, without the enrichment rules, the enriched schema and the TAC
+	 * check, which is fast enough to run on every edit.
+	 */
+	public TafValidationResult validate(String tafStr, TafValidationMode mode)
+			throws ProcessingException, JSONException, IOException, ParseException {
+		TafValidationResult result = validate(ValidationUtils.getJsonNode(tafStr), null, mode, false, null, null);
+		addWarmupTaf(tafStr);
+		return result;
+	}
+
+	/**
+	 * Validates the json of a TAF, or returns the result of an earlier
+	 * validation of the same json against the same schemas
+	 *
+	 * @param taf
+	 *            the TAF as typed object, if the caller has it
+	 * @param serialized
+	 *            true if the json was serialized from the typed object
+	 * @param schemas
+	 *            the compiled schemas to validate against, or null for the
+	 *            current ones
+	 * @param augmentTimings
+	 *            the timings to add the time spent in the enrichment rules to, or
+	 *            null
+	 */
+	private TafValidationResult validate(JsonNode jsonNode, Taf taf, TafValidationMode mode, boolean serialized,
+			CompiledTafSchemas schemas, AugmentTimings augmentTimings)
+			throws ProcessingException, JSONException, IOException, ParseException {
+		TafValidationStageTimer timer = newStageTimer();
+		timer.start();
+		if (schemas == null) {
+			schemas = getCompiledTafSchemas();
+		}
+		timer.stop(TafValidationStage.SCHEMA_LOADING);
+		String cacheKey = ValidationResultCache.key(schemas.version + "/" + mode, jsonNode);
+		TafValidationResult cached = resultCache.get(cacheKey);
+		if (cached != null) {
+			return cached;
+		}
+		if (taf == null && mode == TafValidationMode.FULL) {
+			try {
+				taf = objectMapper.treeToValue(jsonNode, Taf.class);
+			} catch (Exception e) {
+				// Reported as a TAC failure by the validation
+			}
+		}
+		TafValidationContext context = new TafValidationContext(jsonNode, taf, mode, serialized, timer);
+		context.augmentTimings = augmentTimings;
+		TafValidationResult result = validate(context, schemas);
+		result.setMode(mode);
+		result.setStageNanos(timer.getStageNanos());
+		result.setStageAllocatedBytes(timer.getStageAllocatedBytes());
+		resultCache.put(cacheKey, result);
+		return result;
+	}
+
+	/**
+	 * Validates a TAF like {@link #validate(String)}, but only validates the
+	 * change groups that changed since the last version of the TAF with the same
+	 * uuid against the schemas. The errors of the other change groups are taken
+	 * from that last validation. The enrichment rules and the TAC check still
+	 * look at the whole TAF, as the rules depend on all earlier change groups.
+	 *
+	 * The structure and enriched reports of the result only cover the parts of
+	 * the TAF that were validated again, so the result is cached apart from the
+	 * results of {@link #validate(String)}.
+	 */
+	public TafValidationResult validateIncremental(String tafStr)
+			throws ProcessingException, JSONException, IOException, ParseException {
 		JsonNode jsonNode = ValidationUtils.getJsonNode(tafStr);
+		JsonNode uuid = jsonNode.path("metadata").path("uuid");
+		if (!uuid.isTextual()) {
+			TafValidationResult result = validate(jsonNode, null, TafValidationMode.FULL, false, null, null);
+			addWarmupTaf(tafStr);
+			return result;
+		}
+		TafValidationStageTimer timer = newStageTimer();
+		timer.start();
+		CompiledTafSchemas schemas = getCompiledTafSchemas();
+		timer.stop(TafValidationStage.SCHEMA_LOADING);
+		String cacheKey = ValidationResultCache.key(schemas.version + "/INCREMENTAL", jsonNode);
+		TafValidationResult cached = resultCache.get(cacheKey);
+		if (cached != null) {
+			return cached;
+		}
+		Taf taf = null;
+		try {
+			taf = objectMapper.treeToValue(jsonNode, Taf.class);
+		} catch (Exception e) {
+			// Reported as a TAC failure by the validation
+		}
+
+		TafValidationSession session;
+		synchronized (sessions) {
+			session = sessions.computeIfAbsent(uuid.asText(), k -> new TafValidationSession());
+		}
+		TafValidationResult result;
+		synchronized (session) {
+			result = validateIncremental(new TafValidationContext(jsonNode, taf, TafValidationMode.FULL, false, timer),
+					schemas, session);
+		}
+		result.setMode(TafValidationMode.FULL);
+		result.setStageNanos(timer.getStageNanos());
+		result.setStageAllocatedBytes(timer.getStageAllocatedBytes());
+		resultCache.put(cacheKey, result);
+		addWarmupTaf(tafStr);
+		return result;
+	}
+
+	private TafValidationResult validateIncremental(TafValidationContext context, CompiledTafSchemas schemas,
+			TafValidationSession session) throws ProcessingException, JSONException, IOException, ParseException {
+		JsonNode jsonNode = context.jsonNode;
 		removeLastEmptyChangegroup(jsonNode);
-		DualReturn ret = performValidation(schemaFile, jsonNode);
+		if (!jsonNode.isObject() || !jsonNode.path("changegroups").isArray()) {
+			session.reset();
+			return validate(context, schemas);
+		}
+		session.useSchemaVersion(schemas.version);
+
+		context.timer.start();
+		ProcessingReport validationReport = validateChangedChangegroups(schemas.tafSchema, jsonNode, session.structure,
+				schemas.messages);
+		context.timer.stop(TafValidationStage.STRUCTURE_VALIDATION);
+		context.timer.start();
+		JsonNode errorJson = new ObjectMapper().readTree("{}");
+		if (session.structure.isFailed()) {
+			String errorsAsJson = new ObjectMapper().writeValueAsString(mostSpecificErrors(session.structure.getErrors()));
+			((ObjectNode) errorJson).setAll((ObjectNode) (ValidationUtils.getJsonNode(errorsAsJson)));
+		}
+		context.timer.stop(TafValidationStage.ERROR_HUMANIZATION);
+
+		context.timer.start();
+		enrich(jsonNode);
+		context.timer.stop(TafValidationStage.ENRICH);
+		context.timer.start();
+		ProcessingReport enrichedValidationReport = validateChangedChangegroups(schemas.enrichedTafSchema, jsonNode,
+				session.enriched, schemas.messages);
+		context.timer.stop(TafValidationStage.ENRICHED_VALIDATION);
+		context.timer.start();
+		if (session.enriched.isFailed()) {
+			String errorsAsJson = new ObjectMapper().writeValueAsString(mostSpecificErrors(session.enriched.getErrors()));
+			((ObjectNode) errorJson).setAll((ObjectNode) ValidationUtils.getJsonNode(errorsAsJson));
+		}
+		context.timer.stop(TafValidationStage.ERROR_HUMANIZATION);
+
+		/* Check if we can make a TAC */
+		context.timer.start();
+		try {
+			context.tac = context.taf.toTAC();
+		} catch (Exception e) {
+			ObjectMapper om = new ObjectMapper();
+			return new TafValidationResult(false,
+					(ObjectNode) om.readTree("{\"/forecast/message\": [\"Unable to generate TAC report\"]}"), validationReport,
+					enrichedValidationReport);
+		} finally {
+			context.timer.stop(TafValidationStage.TAC);
+		}
+
+		TafValidationResult result;
+		if (!session.structure.isFailed() && !session.enriched.isFailed()) {
+			result = new TafValidationResult(true);
+		} else {
+			result = new TafValidationResult(false, (ObjectNode) errorJson, validationReport, enrichedValidationReport);
+		}
+		result.setTac(context.tac);
+		return result;
+	}
+
+	/**
+	 * Validates the root of the TAF and the change groups that changed since the
+	 * last validation in this pass against the schema, and keeps the errors found
+	 * in the pass.
+	 *
+	 * This relies on the schemas validating every change group on its own, so the
+	 * changed change groups are validated as a TAF with only those change groups,
+	 * after which the errors are moved back to the pointers of the change groups
+	 * in the whole TAF.
+	 *
+	 * The schema validator stops descending into the tree after the first error,
+	 * so a change group after a failing one is only checked at its top. Such a
+	 * change group is validated again each time, until it is checked in depth.
+	 */
+	private ProcessingReport validateChangedChangegroups(SchemaValidation schema, JsonNode jsonNode,
+			TafValidationSession.Pass pass, Map<String, Map<String, String>> messagesMap) throws ProcessingException {
+		JsonNode changegroups = jsonNode.get("changegroups");
+		List<Integer> changed = new ArrayList<>();
+		if (pass.canReuse(changegroups)) {
+			for (int i = 0; i < changegroups.size(); i++) {
+				if (pass.isChanged(i, changegroups.get(i))) {
+					changed.add(i);
+				}
+			}
+		} else {
+			pass.reset(changegroups.size());
+			for (int i = 0; i < changegroups.size(); i++) {
+				changed.add(i);
+			}
+		}
+		for (int i = 0; i < changegroups.size(); i++) {
+			if (!pass.isChangegroupCheckedInDepth(i) && !changed.contains(i)) {
+				changed.add(i);
+			}
+		}
+		// The forecast comes after the change groups, so keep the first failing change group in
+		// the partial tree to see the same errors after it as a validation of the whole tree would
+		for (int i = 0; i < changegroups.size(); i++) {
+			if (pass.isChangegroupFailed(i) && !changed.contains(i)) {
+				changed.add(i);
+				break;
+			}
+		}
+		Collections.sort(changed);
+
+		ObjectNode partial = ((ObjectNode) jsonNode).objectNode();
+		jsonNode.fields().forEachRemaining(field -> partial.set(field.getKey(), field.getValue()));
+		ArrayNode partialChangegroups = partial.putArray("changegroups");
+		changed.forEach(i -> partialChangegroups.add(changegroups.get(i)));
+		ProcessingReport report = schema.validate(partial);
+
+		Map<String, Set<String>> rootErrors = new HashMap<>();
+		List<Map<String, Set<String>>> changegroupErrors = new ArrayList<>();
+		boolean[] changegroupFailed = new boolean[changed.size()];
+		changed.forEach(i -> changegroupErrors.add(new HashMap<>()));
+		humanReadableErrors(report, messagesMap).forEach((pointer, messages) -> {
+			int index = changegroupIndex(pointer);
+			if (index < 0) {
+				rootErrors.put(pointer, messages);
+			} else {
+				changegroupErrors.get(index).put(changegroupPointer(pointer, changed.get(index)), messages);
+			}
+		});
+		boolean rootFailed = false;
+		boolean changegroupsFailed = false;
+		// Whether an error was found before the validator got to the change groups
+		boolean failedBeforeChangegroups = false;
+		for (ProcessingMessage message : report) {
+			String pointer = message.asJson().path("instance").path("pointer").asText();
+			int index = changegroupIndex(pointer);
+			if (index < 0) {
+				rootFailed = true;
+				changegroupsFailed |= pointer.equals("/changegroups");
+				failedBeforeChangegroups |= isValidatedBeforeChangegroups(pointer);
+			} else {
+				changegroupFailed[index] = true;
+			}
+		}
+
+		boolean checkedInDepth = !failedBeforeChangegroups;
+		for (int i = 0; i < changed.size(); i++) {
+			int index = changed.get(i);
+			pass.setChangegroup(index, changegroups.get(index), changegroupErrors.get(i), changegroupFailed[i],
+					checkedInDepth);
+			checkedInDepth &= !changegroupFailed[i];
+		}
+		pass.setRoot(rootErrors, rootFailed, changegroupsFailed);
+		return report;
+	}
+
+	private static final String CHANGEGROUPS_POINTER = "/changegroups/";
+
+	/**
+	 * @return true if the validator checks the node at the pointer outside the
+	 *         change groups before the change groups, it takes the fields of an
+	 *         object in sorted order after the object itself
+	 */
+	private static boolean isValidatedBeforeChangegroups(String pointer) {
+		if (pointer.isEmpty() || pointer.equals("/changegroups")) {
+			return true;
+		}
+		int end = pointer.indexOf('/', 1);
+		String field = pointer.substring(1, end < 0 ? pointer.length() : end);
+		return field.compareTo("changegroups") < 0;
+	}
+
+	/**
+	 * @return the index of the change group the pointer is in, or -1
+	 */
+	private static int changegroupIndex(String pointer) {
+		if (!pointer.startsWith(CHANGEGROUPS_POINTER)) {
+			return -1;
+		}
+		int end = pointer.indexOf('/', CHANGEGROUPS_POINTER.length());
+		String index = pointer.substring(CHANGEGROUPS_POINTER.length(), end < 0 ? pointer.length() : end);
+		try {
+			return Integer.parseInt(index);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return the pointer with the index of its change group replaced
+	 */
+	private static String changegroupPointer(String pointer, int index) {
+		int end = pointer.indexOf('/', CHANGEGROUPS_POINTER.length());
+		return CHANGEGROUPS_POINTER + index + (end < 0 ? "" : pointer.substring(end));
+	}
+
+	private static long estimateBytes(TafValidationResult result) {
+		long bytes = 0;
+		if (result.getErrors() != null) {
+			bytes += 2L * result.getErrors().toString().length();
+		}
+		if (result.getTac() != null) {
+			bytes += 2L * result.getTac().length();
+		}
+		for (ProcessingReport report : Arrays.asList(result.getStructureReport(), result.getEnrichedReport())) {
+			if (report != null) {
+				for (ProcessingMessage message : report) {
+					bytes += 2L * message.toString().length();
+				}
+			}
+		}
+		return bytes;
+	}
+
+	private TafValidationResult validate(TafValidationContext context, CompiledTafSchemas schemas)
+			throws ProcessingException, JSONException, IOException, ParseException {
+		JsonNode jsonNode = context.jsonNode;
+		removeLastEmptyChangegroup(jsonNode);
+		context.timer.start();
+		DualReturn ret = performValidation(schemas.tafSchema, jsonNode, schemas.messages);
+		context.timer.stop(TafValidationStage.STRUCTURE_VALIDATION);
 		ProcessingReport validationReport = ret.getReport();
 		Map<String, Map<String, String>> messagesMap = ret.getMessages();
 
@@ -546,6 +1252,7 @@ public class TafValidator {
 
 		//		Debug.println(messagesMap.toString());
 
+		context.timer.start();
 		Map<String, Set<String>> errorMessages = convertReportInHumanReadableErrors(validationReport, messagesMap);
 		JsonNode errorJson = new ObjectMapper().readTree("{}");
 
@@ -574,11 +1281,22 @@ public class TafValidator {
 			((ObjectNode) errorJson).setAll((ObjectNode) (ValidationUtils.getJsonNode(errorsAsJson)));
 			//			Debug.println((new JSONObject(errorJson.toString())).toString(4));
 		}
+		context.timer.stop(TafValidationStage.ERROR_HUMANIZATION);
+		if (context.mode == TafValidationMode.STRUCTURAL) {
+			if (validationReport.isSuccess()) {
+				return new TafValidationResult(true);
+			}
+			return new TafValidationResult(false, (ObjectNode) errorJson, validationReport);
+		}
 		// Enrich the JSON with custom data validation, this is validated using a second
 		// schema
-		enrich(jsonNode);
-		String enrichedSchemaFile = tafSchemaStore.getLatestEnrichedTafSchema();
-		ret = performValidation(enrichedSchemaFile, jsonNode);
+		context.timer.start();
+		enrich(jsonNode, context.serialized && isWritingNonNullFields() ? context.taf : null,
+				context.augmentTimings);
+		context.timer.stop(TafValidationStage.ENRICH);
+		context.timer.start();
+		ret = performValidation(schemas.enrichedTafSchema, jsonNode, schemas.messages);
+		context.timer.stop(TafValidationStage.ENRICHED_VALIDATION);
 		ProcessingReport enrichedValidationReport = ret.getReport();
 		Map<String, Map<String, String>> enrichedMessagesMap = ret.getMessages();
 		if (enrichedValidationReport == null) {
@@ -595,27 +1313,36 @@ public class TafValidator {
 			// Try to find all possible errors and map them to the human-readable variants
 			// using the messages map
 			// Append them to any previous errors, if any
+			context.timer.start();
 			Map<String, Set<String>> enrichedErrorMessages = convertReportInHumanReadableErrors(
 					enrichedValidationReport, enrichedMessagesMap);
 			String errorsAsJson = new ObjectMapper().writeValueAsString(enrichedErrorMessages);
 			((ObjectNode) errorJson).setAll((ObjectNode) ValidationUtils.getJsonNode(errorsAsJson));
+			context.timer.stop(TafValidationStage.ERROR_HUMANIZATION);
 		}
 
 		/* Check if we can make a TAC */
+		context.timer.start();
 		try{
-			objectMapper.readValue(tafStr, Taf.class).toTAC();
+			context.tac = context.taf.toTAC();
 		}catch(Exception e){
 			//			Debug.printStackTrace(e);
 			ObjectMapper om = new ObjectMapper();
 			return new TafValidationResult(false,
 					(ObjectNode) om.readTree("{\"/forecast/message\": [\"Unable to generate TAC report\"]}"), validationReport,
 					enrichedValidationReport);
+		} finally {
+			context.timer.stop(TafValidationStage.TAC);
 		}
 
 		// If everything is okay, return true as succeeded with null as errors
+		TafValidationResult result;
 		if (enrichedValidationReport.isSuccess() && validationReport.isSuccess()) {
-			return new TafValidationResult(true);
+			result = new TafValidationResult(true);
+		} else {
+			result = new TafValidationResult(false, (ObjectNode) errorJson, validationReport, enrichedValidationReport);
 		}
-		return new TafValidationResult(false, (ObjectNode) errorJson, validationReport, enrichedValidationReport);
+		result.setTac(context.tac);
+		return result;
 	}
 }
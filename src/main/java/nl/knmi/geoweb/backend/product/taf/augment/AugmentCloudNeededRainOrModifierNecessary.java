@@ -1,65 +1,60 @@
 package nl.knmi.geoweb.backend.product.taf.augment;
 
 import java.util.Iterator;
-import java.util.stream.StreamSupport;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.NullNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
-public class AugmentCloudNeededRainOrModifierNecessary {
+public class AugmentCloudNeededRainOrModifierNecessary implements AugmentRule {
+	private JsonNode forecastWeather;
+	private JsonNode forecastClouds;
+
 	// 	TODO: Check if FM handled correctly
-	public static void augment(JsonNode input) {
-		ObjectNode forecast = (ObjectNode) input.get("forecast");
+	@Override
+	public boolean visitTaf(AugmentContext taf) {
+		ObjectNode forecast = (ObjectNode) taf.getForecast();
 		if (forecast == null || forecast.isNull() || forecast.isMissingNode())
-			return;
+			return false;
 
-		JsonNode forecastWeather = input.get("forecast").get("weather");
-		JsonNode forecastClouds = input.get("forecast").get("clouds");
+		forecastWeather = forecast.get("weather");
+		forecastClouds = forecast.get("clouds");
 
 		processWeatherAndCloudGroup(forecast, forecastWeather, forecastClouds);
-		JsonNode changeGroups = input.get("changegroups");
-		if (changeGroups == null || changeGroups.isNull() || changeGroups.isMissingNode())
-			return;
+		return true;
+	}
 
-		for (Iterator<JsonNode> change = changeGroups.elements(); change.hasNext();) {
-			JsonNode nextNode = change.next(); 
-			if (nextNode == null || nextNode == NullNode.getInstance()) continue;
-			ObjectNode changegroup = (ObjectNode) nextNode;
+	@Override
+	public boolean visitChangegroup(AugmentContext taf, ObjectNode changegroup) {
+		JsonNode changeForecastNode = taf.getChangegroupForecast();
+		if (changeForecastNode == null) {
+			return true;
+		}
+		if (changeForecastNode.isNull() || changeForecastNode.isMissingNode()) {
+			return true;
+		}
+		String changeGroupChangeAsText = taf.getChangeTypeText();
 
-			if (!changegroup.has("forecast")) {
-				continue;
+		/* From groups are treated as a new TAF */
+		if (!changeGroupChangeAsText.equals("FM")) {
+			ObjectNode changeForecast = (ObjectNode) changeForecastNode;
+			JsonNode changeWeather = changeForecast.get("weather");
+			if (changeWeather == null) {
+				changeWeather = forecastWeather;
 			}
-			JsonNode changeForecastNode = changegroup.get("forecast");
-			if (changeForecastNode.isNull() || changeForecastNode == null || changeForecastNode.isMissingNode()) {
-				continue;
-			}
-			String changeGroupChangeAsText = "";
-			if (changegroup.get("changeType") != null ) {
-				changeGroupChangeAsText = changegroup.get("changeType").asText();
+			JsonNode changeClouds = changeForecast.get("clouds");
+			if (changeClouds == null) {
+				changeClouds = forecastClouds;
 			}
 
-			/* From groups are treated as a new TAF */
-			if (!changeGroupChangeAsText.equals("FM")) {
-				ObjectNode changeForecast = (ObjectNode) changeForecastNode;
-				JsonNode changeWeather = changeForecast.get("weather");
-				if (changeWeather == null) {
-					changeWeather = forecastWeather;
-				}
-				JsonNode changeClouds = changeForecast.get("clouds");
-				if (changeClouds == null) {
-					changeClouds = forecastClouds;
-				}
+			processWeatherAndCloudGroup(changeForecast, changeWeather, changeClouds);
 
-				processWeatherAndCloudGroup(changeForecast, changeWeather, changeClouds);
-
-				if (!changeGroupChangeAsText.startsWith("PROB") && !changeGroupChangeAsText.equalsIgnoreCase("TEMPO")) {
-					forecastWeather = changeWeather;
-					forecastClouds = changeClouds;
-				}
+			if (!changeGroupChangeAsText.startsWith("PROB") && !changeGroupChangeAsText.equalsIgnoreCase("TEMPO")) {
+				forecastWeather = changeWeather;
+				forecastClouds = changeClouds;
 			}
 		}
+		return true;
 	}
 
 
@@ -100,8 +95,7 @@ public class AugmentCloudNeededRainOrModifierNecessary {
 					forecast.put("cloudsCBNeededAndPresent", false);
 				} else {
 					ArrayNode cloudsArray = (ArrayNode) forecastClouds;
-					forecast.put("cloudsCBNeededAndPresent", StreamSupport.stream(cloudsArray.spliterator(), true)
-							.anyMatch(cloud -> cloud.has("mod") && cloud.get("mod").asText().equals("CB")));
+					forecast.put("cloudsCBNeededAndPresent", hasModifier(cloudsArray, "CB", "CB"));
 				}
 			}
 			if (requiresCBorTCU) {
@@ -109,17 +103,12 @@ public class AugmentCloudNeededRainOrModifierNecessary {
 					forecast.put("cloudsCBorTCUNeededAndPresent", false);
 				} else {
 					ArrayNode cloudsArray = (ArrayNode) forecastClouds;
-					forecast.put("cloudsCBorTCUNeededAndPresent",
-							StreamSupport.stream(cloudsArray.spliterator(), true)
-							.anyMatch(cloud -> cloud.has("mod") && (cloud.get("mod").asText().equals("CB")
-									|| cloud.get("mod").asText().equals("TCU"))));
+					forecast.put("cloudsCBorTCUNeededAndPresent", hasModifier(cloudsArray, "CB", "TCU"));
 				}
 			}
 			if (forecastClouds != null && forecastClouds.isArray()) {
 				ArrayNode cloudsArray = (ArrayNode) forecastClouds;
-				boolean modifierPresent = StreamSupport.stream(cloudsArray.spliterator(), true)
-						.anyMatch(cloud -> cloud.has("mod")
-								&& (cloud.get("mod").asText().equals("CB") || cloud.get("mod").asText().equals("TCU")));
+				boolean modifierPresent = hasModifier(cloudsArray, "CB", "TCU");
 				if (modifierPresent) {
 					forecast.put("cloudsModifierHasWeatherPresent", rainOrThunderstormPresent);
 				}
@@ -128,11 +117,19 @@ public class AugmentCloudNeededRainOrModifierNecessary {
 		} else {
 			if (forecastClouds != null && forecastClouds.isArray()) {
 				ArrayNode cloudsArray = (ArrayNode) forecastClouds;
-				boolean modifierPresent = StreamSupport.stream(cloudsArray.spliterator(), true)
-						.anyMatch(cloud -> cloud.has("mod")
-								&& (cloud.get("mod").asText().equals("CB") || cloud.get("mod").asText().equals("TCU")));
+				boolean modifierPresent = hasModifier(cloudsArray, "CB", "TCU");
 				forecast.put("cloudsModifierHasWeatherPresent", !modifierPresent);
 			}
 		}
 	}
+
+	private static boolean hasModifier(ArrayNode clouds, String modifier, String otherModifier) {
+		for (JsonNode cloud : clouds) {
+			if (cloud.has("mod")
+					&& (cloud.get("mod").asText().equals(modifier) || cloud.get("mod").asText().equals(otherModifier))) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
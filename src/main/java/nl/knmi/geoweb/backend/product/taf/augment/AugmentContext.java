@@ -0,0 +1,156 @@
+package nl.knmi.geoweb.backend.product.taf.augment;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import lombok.Getter;
+
+/**
+ * What the rules augmenting a TAF share: the TAF, its validity, the change
+ * group being visited and the parsed times. Every lookup is done once for all
+ * rules.
+ */
+public class AugmentContext {
+	// Lookups can find nothing, so a lookup not done yet is marked differently
+	private static final JsonNode NOT_SEARCHED = MissingNode.getInstance();
+
+	private final SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+	// The parsed dates, or the ParseException of times that can not be parsed
+	private final Map<String, Object> times = new HashMap<>();
+
+	@Getter
+	private final JsonNode taf;
+	@Getter
+	private final JsonNode forecast;
+	private JsonNode validityStart = NOT_SEARCHED;
+	private JsonNode validityEnd = NOT_SEARCHED;
+
+	@Getter
+	private ObjectNode changegroup;
+	private JsonNode changeStart;
+	private JsonNode changeEnd;
+	private JsonNode foundChangeType;
+	private JsonNode changeType;
+	private JsonNode changegroupForecast;
+
+	AugmentContext(JsonNode taf) {
+		formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+		this.taf = taf;
+		this.forecast = taf.get("forecast");
+	}
+
+	void setChangegroup(ObjectNode changegroup) {
+		this.changegroup = changegroup;
+		changeStart = NOT_SEARCHED;
+		changeEnd = NOT_SEARCHED;
+		foundChangeType = NOT_SEARCHED;
+		changeType = NOT_SEARCHED;
+		changegroupForecast = NOT_SEARCHED;
+	}
+
+	/**
+	 * @return the first validityStart anywhere in the TAF
+	 */
+	public JsonNode getValidityStart() {
+		if (validityStart == NOT_SEARCHED) {
+			validityStart = taf.findValue("validityStart");
+		}
+		return validityStart;
+	}
+
+	/**
+	 * @return the first validityEnd anywhere in the TAF
+	 */
+	public JsonNode getValidityEnd() {
+		if (validityEnd == NOT_SEARCHED) {
+			validityEnd = taf.findValue("validityEnd");
+		}
+		return validityEnd;
+	}
+
+	/**
+	 * @return the first changeStart anywhere in the change group
+	 */
+	public JsonNode findChangeStart() {
+		if (changeStart == NOT_SEARCHED) {
+			changeStart = changegroup.findValue("changeStart");
+		}
+		return changeStart;
+	}
+
+	/**
+	 * @return the first changeEnd anywhere in the change group
+	 */
+	public JsonNode findChangeEnd() {
+		if (changeEnd == NOT_SEARCHED) {
+			changeEnd = changegroup.findValue("changeEnd");
+		}
+		return changeEnd;
+	}
+
+	/**
+	 * @return the first changeType anywhere in the change group
+	 */
+	public JsonNode findChangeType() {
+		if (foundChangeType == NOT_SEARCHED) {
+			foundChangeType = changegroup.findValue("changeType");
+		}
+		return foundChangeType;
+	}
+
+	/**
+	 * @return the changeType field of the change group
+	 */
+	public JsonNode getChangeType() {
+		if (changeType == NOT_SEARCHED) {
+			changeType = changegroup.get("changeType");
+		}
+		return changeType;
+	}
+
+	/**
+	 * @return the changeType field of the change group as text, or an empty string
+	 */
+	public String getChangeTypeText() {
+		JsonNode type = getChangeType();
+		return type != null ? type.asText() : "";
+	}
+
+	/**
+	 * @return the forecast field of the change group
+	 */
+	public JsonNode getChangegroupForecast() {
+		if (changegroupForecast == NOT_SEARCHED) {
+			changegroupForecast = changegroup.get("forecast");
+		}
+		return changegroupForecast;
+	}
+
+	/**
+	 * Parses a time of the TAF, each different time only once. The returned date
+	 * is shared by all rules and must not be changed.
+	 */
+	public Date parseTime(String time) throws ParseException {
+		Object parsed = times.get(time);
+		if (parsed == null) {
+			try {
+				parsed = formatter.parse(time);
+			} catch (ParseException e) {
+				parsed = e;
+			}
+			times.put(time, parsed);
+		}
+		if (parsed instanceof ParseException) {
+			throw (ParseException) parsed;
+		}
+		return (Date) parsed;
+	}
+}
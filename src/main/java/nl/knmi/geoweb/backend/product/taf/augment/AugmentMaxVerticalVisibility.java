@@ -10,15 +10,17 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import nl.knmi.geoweb.backend.product.taf.TafValidator;
 
-public class AugmentMaxVerticalVisibility {
+public class AugmentMaxVerticalVisibility implements AugmentRule {
 
 
-	public static void augment(JsonNode input) {
-		if (!TafValidator.checkIfNodeHasValue(input.get("forecast")) || 
-				!TafValidator.checkIfNodeHasValue(input.get("forecast").get("vertical_visibility")))return;
+	@Override
+	public boolean visitTaf(AugmentContext taf) {
+		JsonNode forecast = taf.getForecast();
+		if (!TafValidator.checkIfNodeHasValue(forecast) || 
+				!TafValidator.checkIfNodeHasValue(forecast.get("vertical_visibility")))return false;
 		{
-			JsonNode forecastWeather = input.get("forecast").get("weather");
-			JsonNode forecastVerticalVisibility = input.get("forecast").get("vertical_visibility");
+			JsonNode forecastWeather = forecast.get("weather");
+			JsonNode forecastVerticalVisibility = forecast.get("vertical_visibility");
 			if (forecastWeather != null && !forecastWeather.isNull() && !forecastWeather.isMissingNode()
 					&& forecastVerticalVisibility != null && !forecastVerticalVisibility.isNull() && !forecastVerticalVisibility.isMissingNode()) {
 				int visibility = forecastVerticalVisibility.asInt();
@@ -26,38 +28,32 @@ public class AugmentMaxVerticalVisibility {
 					JsonNode nextNode = weatherNode.next();
 					if (nextNode == null || nextNode == NullNode.getInstance()) continue;
 					JsonNode weatherGroup = (ObjectNode) nextNode;
-					checkVerticalVisibilityWithinLimit(weatherGroup, (ObjectNode) input.get("forecast"), visibility);
+					checkVerticalVisibilityWithinLimit(weatherGroup, (ObjectNode) forecast, visibility);
 				}
 			}
 		}
+		return true;
+	}
 
-		JsonNode changeGroups = input.get("changegroups");
-		if (changeGroups == null || changeGroups.isNull() || changeGroups.isMissingNode()) 
-			return;
-
-		for (Iterator<JsonNode> change = changeGroups.elements(); change.hasNext();) {
-			JsonNode nextNode = change.next(); 
-			if (nextNode == null || nextNode == NullNode.getInstance()) continue;
-			ObjectNode changegroup = (ObjectNode) nextNode;
-
-			ObjectNode changeForecast = (ObjectNode) changegroup.get("forecast");
-			if (changeForecast == null || changeForecast.isNull() || changeForecast.isMissingNode())
-				return;
+	@Override
+	public boolean visitChangegroup(AugmentContext taf, ObjectNode changegroup) {
+		ObjectNode changeForecast = (ObjectNode) taf.getChangegroupForecast();
+		if (changeForecast == null || changeForecast.isNull() || changeForecast.isMissingNode())
+			return false;
 
-			JsonNode changeWeather = changeForecast.get("weather");
-			JsonNode changeVisibility = changeForecast.get("visibility");
-			if (changeWeather != null && !changeWeather.isNull() && !changeWeather.isMissingNode()
-					&& changeVisibility != null && !changeVisibility.isNull() && !changeVisibility.isMissingNode()) {
-				int visibility = changeVisibility.asInt();
-				for (Iterator<JsonNode> weatherNode = changeWeather.elements(); weatherNode.hasNext();) {
-					JsonNode weatherGroup = (ObjectNode) weatherNode.next();
-					checkVerticalVisibilityWithinLimit (weatherGroup, changeForecast, visibility);
-				}
+		JsonNode changeWeather = changeForecast.get("weather");
+		JsonNode changeVisibility = changeForecast.get("visibility");
+		if (changeWeather != null && !changeWeather.isNull() && !changeWeather.isMissingNode()
+				&& changeVisibility != null && !changeVisibility.isNull() && !changeVisibility.isMissingNode()) {
+			int visibility = changeVisibility.asInt();
+			for (Iterator<JsonNode> weatherNode = changeWeather.elements(); weatherNode.hasNext();) {
+				JsonNode weatherGroup = (ObjectNode) weatherNode.next();
+				checkVerticalVisibilityWithinLimit (weatherGroup, changeForecast, visibility);
 			}
-
-
 		}
+		return true;
 	}
+
 	private static void checkVerticalVisibilityWithinLimit (JsonNode weatherGroup, ObjectNode forecast, int visibility ){
 		if (!weatherGroup.has("phenomena"))
 			return;
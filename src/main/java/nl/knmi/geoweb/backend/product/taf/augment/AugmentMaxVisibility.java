@@ -10,18 +10,22 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import nl.knmi.adaguc.tools.Debug;
 
-public class AugmentMaxVisibility {
-	public static void augment(JsonNode input) {
+public class AugmentMaxVisibility implements AugmentRule {
+	private JsonNode forecastWeather;
+	private JsonNode forecastVisibility;
+
+	@Override
+	public boolean visitTaf(AugmentContext taf) {
 		//		Debug.println("Augmenting max visibility");
-		ObjectNode forecast = (ObjectNode) input.get("forecast");
+		ObjectNode forecast = (ObjectNode) taf.getForecast();
 		if (forecast == null || forecast.isNull() || forecast.isMissingNode()) {
 			Debug.println("augmentMaxVisibility: No forecast");
-			return;
+			return false;
 		}
 
 
-		JsonNode forecastWeather = input.get("forecast").get("weather");
-		JsonNode forecastVisibility = input.get("forecast").get("visibility");
+		forecastWeather = forecast.get("weather");
+		forecastVisibility = forecast.get("visibility");
 		if (forecastWeather != null && !forecastWeather.isNull() && !forecastWeather.isMissingNode()
 				&& forecastVisibility != null && !forecastVisibility.isNull() && !forecastVisibility.isMissingNode()) {
 			int visibility = forecastVisibility.get("value").asInt();
@@ -32,55 +36,46 @@ public class AugmentMaxVisibility {
 				checkVisibilityWithinLimit (weatherGroup, forecast, visibility);
 			}
 		}
+		return true;
+	}
 
+	@Override
+	public boolean visitChangegroup(AugmentContext taf, ObjectNode changegroup) {
+		ObjectNode changeForecast = (ObjectNode) taf.getChangegroupForecast();
+		if (changeForecast == null || changeForecast.isNull() || changeForecast.isMissingNode())
+			return false;
 
-		JsonNode changeGroups = input.get("changegroups");
-		if (changeGroups == null || changeGroups.isNull() || changeGroups.isMissingNode()) 
-			return;
-
-		for (Iterator<JsonNode> change = changeGroups.elements(); change.hasNext();) {
-			JsonNode nextNode = change.next(); 
-			if (nextNode == null || nextNode == NullNode.getInstance()) continue;
-			ObjectNode changegroup = (ObjectNode) nextNode;
-
-
-			ObjectNode changeForecast = (ObjectNode) changegroup.get("forecast");
-			if (changeForecast == null || changeForecast.isNull() || changeForecast.isMissingNode())
-				return;
-
-			JsonNode changeWeather = changeForecast.get("weather");
-			JsonNode changeVisibility = changeForecast.get("visibility");
+		JsonNode changeWeather = changeForecast.get("weather");
+		JsonNode changeVisibility = changeForecast.get("visibility");
 
-			if ((changeWeather == null || changeWeather.isNull() || changeWeather.isMissingNode())
-					&& (changeVisibility == null || changeVisibility.isNull() || changeVisibility.isMissingNode()))
-				return;
+		if ((changeWeather == null || changeWeather.isNull() || changeWeather.isMissingNode())
+				&& (changeVisibility == null || changeVisibility.isNull() || changeVisibility.isMissingNode()))
+			return false;
 
-			String changeGroupChangeAsText = "";
-			if (changegroup.get("changeType") != null ) {
-				changeGroupChangeAsText = changegroup.get("changeType").asText();
-			}
-			if (changeGroupChangeAsText.equals("BECMG") || changeGroupChangeAsText.equals("TEMPO")) {
-				if (changeWeather == null || changeWeather.isNull() || changeWeather.isMissingNode()) {
-					changeWeather = forecastWeather;
-				}
-				if (changeVisibility == null || changeVisibility.isNull() || changeVisibility.isMissingNode()) {
-					changeVisibility = forecastVisibility;
-				}
+		String changeGroupChangeAsText = taf.getChangeTypeText();
+		if (changeGroupChangeAsText.equals("BECMG") || changeGroupChangeAsText.equals("TEMPO")) {
+			if (changeWeather == null || changeWeather.isNull() || changeWeather.isMissingNode()) {
+				changeWeather = forecastWeather;
 			}
-			if (changeWeather == null || changeVisibility == null)
-				continue;
-			int visibility = changeVisibility.get("value").asInt();
-			for (Iterator<JsonNode> weatherNode = changeWeather.elements(); weatherNode.hasNext();) {
-				JsonNode weatherGroup = (ObjectNode) weatherNode.next();
-				checkVisibilityWithinLimit (weatherGroup, changeForecast, visibility);
+			if (changeVisibility == null || changeVisibility.isNull() || changeVisibility.isMissingNode()) {
+				changeVisibility = forecastVisibility;
 			}
+		}
+		if (changeWeather == null || changeVisibility == null)
+			return true;
+		int visibility = changeVisibility.get("value").asInt();
+		for (Iterator<JsonNode> weatherNode = changeWeather.elements(); weatherNode.hasNext();) {
+			JsonNode weatherGroup = (ObjectNode) weatherNode.next();
+			checkVisibilityWithinLimit (weatherGroup, changeForecast, visibility);
+		}
 
-			if (changegroup.get("changeType") != null && !changegroup.get("changeType").asText().startsWith("PROB")
-					&& !changegroup.get("changeType").asText().equalsIgnoreCase("TEMPO")) {
-				forecastWeather = changeWeather;
-				forecastVisibility = changeVisibility;
-			}
+		JsonNode changeType = taf.getChangeType();
+		if (changeType != null && !changeType.asText().startsWith("PROB")
+				&& !changeType.asText().equalsIgnoreCase("TEMPO")) {
+			forecastWeather = changeWeather;
+			forecastVisibility = changeVisibility;
 		}
+		return true;
 	}	
 
 	/**
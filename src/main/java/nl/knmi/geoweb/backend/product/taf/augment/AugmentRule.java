@@ -0,0 +1,58 @@
+package nl.knmi.geoweb.backend.product.taf.augment;
+
+import java.text.ParseException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A rule adding fields to a TAF, which are validated by the enriched TAF
+ * schema. The rules of a TAF are visited together by {@link TafAugmenter}:
+ * first all rules visit the TAF, then all rules visit the first change group,
+ * and so on. A rule keeps the state it needs from one change group to the next
+ * itself, and must not depend on what later rules add, nor on what earlier
+ * rules add to later change groups.
+ */
+public interface AugmentRule {
+
+	/**
+	 * @return true if the rule wants to visit the change groups
+	 */
+	default boolean visitTaf(AugmentContext taf) throws ParseException {
+		return false;
+	}
+
+	/**
+	 * Visits the change group of the context
+	 *
+	 * @return true if the rule wants to visit the next change groups
+	 */
+	default boolean visitChangegroup(AugmentContext taf, ObjectNode changegroup) throws ParseException {
+		return false;
+	}
+
+	/**
+	 * @return the name of a field this rule visits wherever it is in the TAF, or
+	 *         null
+	 */
+	default String getVisitedField() {
+		return null;
+	}
+
+	/**
+	 * @return true if {@link #visitField} is called with the objects having the
+	 *         field, like findParents, instead of with the values of the field,
+	 *         like findValues
+	 */
+	default boolean isVisitingParents() {
+		return false;
+	}
+
+	/**
+	 * Visits the fields named {@link #getVisitedField()} in document order, but
+	 * not those inside them. It must not add fields to the object having the
+	 * field.
+	 */
+	default void visitField(AugmentContext taf, JsonNode node) throws ParseException {
+	}
+}
@@ -0,0 +1,183 @@
+package nl.knmi.geoweb.backend.product.taf.augment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import lombok.Getter;
+import nl.knmi.geoweb.backend.product.taf.Taf;
+
+/**
+ * The rules augmenting a TAF, in the order in which they run, each with the
+ * fields it reads and writes. Fields are named by their path, like
+ * "forecast.wind.gusts" for the gusts of the forecast and of the forecasts of
+ * the change groups, "changegroup.changeStart" for the fields of a change group
+ * and "validityStart" for the fields of the TAF. Reading a field reads all
+ * fields inside it.
+ *
+ * Two rules depend on each other when one writes a field the other reads or
+ * writes. A rule must run after the rules it depends on that are registered
+ * before it, other rules are independent of it.
+ *
+ * A rule derived from the typed TAF runs in the place of the rules it
+ * replaces, when the json is the TAF serialized without its null fields and
+ * the rule can be derived from it.
+ */
+public class AugmentRuleRegistry {
+	@Getter
+	public static class Registration {
+		private final String name;
+		private final Supplier<AugmentRule> factory;
+		// The factory of a rule derived from the typed TAF, returning null if it cannot be derived
+		private final Function<Taf, AugmentRule> typedFactory;
+		private final Set<String> reads;
+		private final Set<String> writes;
+		private final Set<String> replaced;
+
+		private Registration(String name, Supplier<AugmentRule> factory, Function<Taf, AugmentRule> typedFactory,
+				Set<String> reads, Set<String> writes, Set<String> replaced) {
+			this.name = name;
+			this.factory = factory;
+			this.typedFactory = typedFactory;
+			this.reads = reads;
+			this.writes = writes;
+			this.replaced = replaced;
+		}
+	}
+
+	private final List<Registration> registrations = new ArrayList<>();
+
+	public static Set<String> fields(String... fields) {
+		return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(fields)));
+	}
+
+	/**
+	 * Registers a rule to run after the rules registered so far
+	 */
+	public AugmentRuleRegistry register(String name, Supplier<AugmentRule> factory, Set<String> reads,
+			Set<String> writes) {
+		return add(new Registration(name, factory, null, reads, writes, Collections.emptySet()));
+	}
+
+	/**
+	 * Registers a rule derived from the typed TAF to run after the rules
+	 * registered so far, in the place of the rules it replaces. The rules
+	 * registered since the first rule it replaces must be independent of it.
+	 */
+	public AugmentRuleRegistry registerTyped(String name, Function<Taf, AugmentRule> factory, Set<String> reads,
+			Set<String> writes, String... replaced) {
+		Registration registration = new Registration(name, null, factory, reads, writes, fields(replaced));
+		int first = registrations.size();
+		for (String replacedName : replaced) {
+			int index = indexOf(replacedName);
+			if (index < 0) {
+				throw new IllegalArgumentException("Rule " + replacedName + " is not registered");
+			}
+			first = Math.min(first, index);
+		}
+		for (int i = first; i < registrations.size(); i++) {
+			Registration between = registrations.get(i);
+			if (!registration.replaced.contains(between.name) && dependsOn(registration, between)) {
+				throw new IllegalArgumentException("Rule " + name + " cannot run after " + between.name);
+			}
+		}
+		return add(registration);
+	}
+
+	private AugmentRuleRegistry add(Registration registration) {
+		if (indexOf(registration.name) >= 0) {
+			throw new IllegalArgumentException("Rule " + registration.name + " is already registered");
+		}
+		registrations.add(registration);
+		return this;
+	}
+
+	public List<Registration> getRegistrations() {
+		return Collections.unmodifiableList(registrations);
+	}
+
+	public int size() {
+		return registrations.size();
+	}
+
+	public int indexOf(String name) {
+		for (int i = 0; i < registrations.size(); i++) {
+			if (registrations.get(i).name.equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return new instances of the rules, in the order in which they run. The
+	 *         rules derived from the typed TAF are null.
+	 */
+	public AugmentRule[] createRules() {
+		return createRules(null);
+	}
+
+	/**
+	 * @param taf
+	 *            the typed TAF the json is serialized from without its null
+	 *            fields, or null
+	 * @return new instances of the rules, in the order in which they run. The
+	 *         rules that do not run are null: those replaced by a rule derived
+	 *         from the typed TAF, or the derived rule when it cannot be derived.
+	 */
+	public AugmentRule[] createRules(Taf taf) {
+		AugmentRule[] rules = new AugmentRule[registrations.size()];
+		for (int i = 0; i < rules.length; i++) {
+			Registration registration = registrations.get(i);
+			if (registration.factory != null) {
+				rules[i] = registration.factory.get();
+			} else if (taf != null && (rules[i] = registration.typedFactory.apply(taf)) != null) {
+				for (String replaced : registration.replaced) {
+					rules[indexOf(replaced)] = null;
+				}
+			}
+		}
+		return rules;
+	}
+
+	/**
+	 * @return the indices of the rules registered before the rule that it
+	 *         depends on, other than those it replaces
+	 */
+	public List<Integer> getDependencies(int rule) {
+		Registration registration = registrations.get(rule);
+		List<Integer> dependencies = new ArrayList<>();
+		for (int i = 0; i < rule; i++) {
+			if (!registration.replaced.contains(registrations.get(i).name) && dependsOn(registration, registrations.get(i))) {
+				dependencies.add(i);
+			}
+		}
+		return dependencies;
+	}
+
+	private static boolean dependsOn(Registration registration, Registration earlier) {
+		return overlaps(earlier.writes, registration.reads) || overlaps(earlier.reads, registration.writes)
+				|| overlaps(earlier.writes, registration.writes);
+	}
+
+	private static boolean overlaps(Set<String> fields, Set<String> otherFields) {
+		for (String field : fields) {
+			for (String otherField : otherFields) {
+				if (contains(field, otherField) || contains(otherField, field)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/* Whether a field is the other field or inside it */
+	private static boolean contains(String field, String inside) {
+		return inside.startsWith(field) && (inside.length() == field.length() || inside.charAt(field.length()) == '.');
+	}
+}
@@ -0,0 +1,54 @@
+package nl.knmi.geoweb.backend.product.taf.augment;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The time spent in each rule of a registry, summed over the TAFs augmented
+ * by any number of threads
+ */
+public class AugmentTimings {
+	private final AugmentRuleRegistry registry;
+	private final LongAdder[] ruleNanos;
+	private final LongAdder tafs = new LongAdder();
+
+	public AugmentTimings(AugmentRuleRegistry registry) {
+		this.registry = registry;
+		this.ruleNanos = new LongAdder[registry.size()];
+		for (int i = 0; i < ruleNanos.length; i++) {
+			ruleNanos[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * @return an array for {@link TafAugmenter#augment(com.fasterxml.jackson.databind.JsonNode, long[], AugmentRule...)}
+	 *         to record the time spent in each rule on one TAF
+	 */
+	public long[] newRuleNanos() {
+		return new long[ruleNanos.length];
+	}
+
+	public void add(long[] nanos) {
+		for (int i = 0; i < ruleNanos.length; i++) {
+			ruleNanos[i].add(nanos[i]);
+		}
+		tafs.increment();
+	}
+
+	public long getTafs() {
+		return tafs.sum();
+	}
+
+	/**
+	 * @return the time spent in each rule by the name of the rule, in the order
+	 *         in which the rules run
+	 */
+	public Map<String, Long> getNanosByRule() {
+		Map<String, Long> nanos = new LinkedHashMap<>();
+		for (int i = 0; i < ruleNanos.length; i++) {
+			nanos.put(registry.getRegistrations().get(i).getName(), ruleNanos[i].sum());
+		}
+		return nanos;
+	}
+}
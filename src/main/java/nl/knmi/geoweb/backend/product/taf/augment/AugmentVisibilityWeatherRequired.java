@@ -1,67 +1,64 @@
 package nl.knmi.geoweb.backend.product.taf.augment;
 
-import java.util.Iterator;
-
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.NullNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
-public class AugmentVisibilityWeatherRequired {
-	public static void augment(JsonNode input) {
-		ObjectNode forecastNode = (ObjectNode) input.get("forecast");
+public class AugmentVisibilityWeatherRequired implements AugmentRule {
+	private JsonNode forecastWeather;
+	private JsonNode visibilityNode;
+
+	@Override
+	public boolean visitTaf(AugmentContext taf) {
+		ObjectNode forecastNode = (ObjectNode) taf.getForecast();
 		if (forecastNode == null || forecastNode.isNull() || forecastNode.isMissingNode())
-			return;
+			return false;
 
-		JsonNode forecastWeather = forecastNode.get("weather");
-		JsonNode visibilityNode = forecastNode.findValue("visibility");
+		forecastWeather = forecastNode.get("weather");
+		visibilityNode = forecastNode.findValue("visibility");
 
 		if (visibilityNode != null && visibilityNode.get("value") != null
 				&& visibilityNode.get("value").asInt() < 5000)
 			forecastNode.put("visibilityWeatherRequiredAndPresent",
 					forecastWeather != null && forecastWeather.isArray());
+		return true;
+	}
 
-		JsonNode changeGroups = input.get("changegroups");
-		if (changeGroups == null || changeGroups.isNull() || changeGroups.isMissingNode())
-			return;
-		for (Iterator<JsonNode> change = changeGroups.elements(); change.hasNext();) {
-			JsonNode nextNode = change.next(); 
-			if (nextNode == null || nextNode == NullNode.getInstance()) continue;
-			ObjectNode changegroup = (ObjectNode) nextNode;
-
-			ObjectNode changegroupForecast = (ObjectNode) changegroup.get("forecast");
-			if (changegroupForecast == null || changegroupForecast.isNull() || changegroupForecast.isMissingNode())
-				continue;
+	@Override
+	public boolean visitChangegroup(AugmentContext taf, ObjectNode changegroup) {
+		ObjectNode changegroupForecast = (ObjectNode) taf.getChangegroupForecast();
+		if (changegroupForecast == null || changegroupForecast.isNull() || changegroupForecast.isMissingNode())
+			return true;
 
-			JsonNode changeVisibilityNode = changegroupForecast.findValue("visibility");
-			if (changeVisibilityNode == null || !changeVisibilityNode.has("value")) {
-				changeVisibilityNode = visibilityNode;
-			}
-			;
-			int visibility;
-			if (changeVisibilityNode == null || !changeVisibilityNode.has("value")) {
-				// cavok
-				visibility = 9999;
-			} else {
-				visibility = changeVisibilityNode.get("value").asInt();
-			}
-			JsonNode weather = changegroupForecast.findValue("weather");
-			if (weather == null) {
-				weather = forecastWeather;
-			}
-			// TODO: Check visibility <=5000 or 5000
-			if (visibility < 5000) {
-				changegroupForecast.put("visibilityWeatherRequiredAndPresent", weather != null && weather.isArray());
+		JsonNode changeVisibilityNode = changegroupForecast.findValue("visibility");
+		if (changeVisibilityNode == null || !changeVisibilityNode.has("value")) {
+			changeVisibilityNode = visibilityNode;
+		}
+		;
+		int visibility;
+		if (changeVisibilityNode == null || !changeVisibilityNode.has("value")) {
+			// cavok
+			visibility = 9999;
+		} else {
+			visibility = changeVisibilityNode.get("value").asInt();
+		}
+		JsonNode weather = changegroupForecast.findValue("weather");
+		if (weather == null) {
+			weather = forecastWeather;
+		}
+		// TODO: Check visibility <=5000 or 5000
+		if (visibility < 5000) {
+			changegroupForecast.put("visibilityWeatherRequiredAndPresent", weather != null && weather.isArray());
+		}
+		JsonNode changeType = taf.getChangeType();
+		if (changeType != null && !changeType.asText().startsWith("PROB")) {
+			if (weather != null) {
+				forecastWeather = weather;
 			}
-			JsonNode changeType = changegroup.get("changeType");
-			if (changeType != null && !changeType.asText().startsWith("PROB")) {
-				if (weather != null) {
-					forecastWeather = weather;
-				}
-				if (changeVisibilityNode != null) {
-					visibilityNode = changeVisibilityNode;
-				}
+			if (changeVisibilityNode != null) {
+				visibilityNode = changeVisibilityNode;
 			}
 		}
+		return true;
 	}
 
 	
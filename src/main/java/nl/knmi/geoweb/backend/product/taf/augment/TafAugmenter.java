@@ -0,0 +1,216 @@
+package nl.knmi.geoweb.backend.product.taf.augment;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Augments a TAF with a number of rules in one pass over the TAF. The TAF
+ * fields and the forecast are visited first, then the change groups one by
+ * one, each by all rules in order. The result is the same as when the rules
+ * are run one after the other, and so is the exception when a rule fails: the
+ * first failure of the first rule that fails. Rules that are null do not run.
+ */
+public class TafAugmenter {
+	private final AugmentRule[] rules;
+	private final AugmentContext context;
+	// Whether the change groups are visited one by one, or the whole TAF at once
+	private final boolean byChangegroup;
+	// The rules visiting fields anywhere in the TAF
+	private final int[] fieldRules;
+	private final boolean[] visitingChangegroups;
+	// The time spent in each rule, or null if not timed
+	private final long[] ruleNanos;
+	// The rules from this one on have stopped because it failed
+	private int failedRule;
+	private Exception failure = null;
+
+	private TafAugmenter(JsonNode input, AugmentRule[] rules, boolean byChangegroup, long[] ruleNanos) {
+		this.rules = rules;
+		this.ruleNanos = ruleNanos;
+		this.context = new AugmentContext(input);
+		this.byChangegroup = byChangegroup;
+		this.visitingChangegroups = new boolean[rules.length];
+		this.failedRule = rules.length;
+		List<Integer> fieldRules = new ArrayList<>();
+		for (int i = 0; i < rules.length; i++) {
+			if (rules[i] != null && rules[i].getVisitedField() != null) {
+				fieldRules.add(i);
+			}
+		}
+		if (fieldRules.size() > Integer.SIZE) {
+			throw new IllegalArgumentException("Too many rules visiting fields: " + fieldRules.size());
+		}
+		this.fieldRules = fieldRules.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	public static void augment(JsonNode input, AugmentRule... rules) throws ParseException {
+		augment(input, null, rules);
+	}
+
+	/**
+	 * Augments a TAF, adding the time spent in each rule to ruleNanos if not null
+	 */
+	public static void augment(JsonNode input, long[] ruleNanos, AugmentRule... rules) throws ParseException {
+		if (canVisitByChangegroup(input, rules)) {
+			new TafAugmenter(input, rules, true, ruleNanos).run();
+		} else {
+			for (int i = 0; i < rules.length; i++) {
+				if (rules[i] == null)
+					continue;
+				long[] nanos = ruleNanos != null ? new long[1] : null;
+				try {
+					new TafAugmenter(input, new AugmentRule[] { rules[i] }, false, nanos).run();
+				} finally {
+					if (ruleNanos != null) {
+						ruleNanos[i] += nanos[0];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The rules can only visit a TAF together when the fields they look for by
+	 * name are each inside the forecast, inside one change group or in other
+	 * fields of the TAF. For anything else they are run one after the other.
+	 */
+	private static boolean canVisitByChangegroup(JsonNode input, AugmentRule[] rules) {
+		if (!input.isObject()) {
+			return false;
+		}
+		for (AugmentRule rule : rules) {
+			if (rule != null && rule.getVisitedField() != null && input.has(rule.getVisitedField())) {
+				return false;
+			}
+		}
+		JsonNode changegroups = input.get("changegroups");
+		return changegroups == null || !changegroups.isObject();
+	}
+
+	private void run() throws ParseException {
+		JsonNode changegroups = context.getTaf().get("changegroups");
+		visitFields(context.getTaf(), 0, byChangegroup ? changegroups : null);
+		for (int i = 0; i < failedRule; i++) {
+			if (rules[i] == null)
+				continue;
+			long start = startTiming();
+			try {
+				visitingChangegroups[i] = rules[i].visitTaf(context);
+			} catch (ParseException | RuntimeException e) {
+				fail(i, e);
+			}
+			stopTiming(i, start);
+		}
+
+		if (changegroups != null && !changegroups.isNull() && !changegroups.isMissingNode()) {
+			for (Iterator<JsonNode> change = changegroups.elements(); change.hasNext();) {
+				JsonNode nextNode = change.next();
+				if (nextNode == null || nextNode == NullNode.getInstance())
+					continue;
+				if (byChangegroup) {
+					visitFields(nextNode, 0, null);
+				}
+				int first = 0;
+				while (first < failedRule && !visitingChangegroups[first]) {
+					first++;
+				}
+				if (first == failedRule)
+					continue;
+				ObjectNode changegroup;
+				try {
+					changegroup = (ObjectNode) nextNode;
+				} catch (ClassCastException e) {
+					// Every rule visiting change groups would fail on this one
+					fail(first, e);
+					continue;
+				}
+				context.setChangegroup(changegroup);
+				for (int i = first; i < failedRule; i++) {
+					if (!visitingChangegroups[i])
+						continue;
+					long start = startTiming();
+					try {
+						visitingChangegroups[i] = rules[i].visitChangegroup(context, changegroup);
+					} catch (ParseException | RuntimeException e) {
+						fail(i, e);
+					}
+					stopTiming(i, start);
+				}
+			}
+		}
+
+		if (failure instanceof ParseException) {
+			throw (ParseException) failure;
+		}
+		if (failure != null) {
+			throw (RuntimeException) failure;
+		}
+	}
+
+	/**
+	 * Visits the fields of a node for the rules visiting fields, like findValues
+	 * and findParents would find them
+	 *
+	 * @param inside  the rules, as bits of fieldRules, already inside a field they
+	 *                visit
+	 * @param skipped a node that is not visited now
+	 */
+	private void visitFields(JsonNode node, int inside, JsonNode skipped) {
+		if (fieldRules.length == 0 || fieldRules[0] >= failedRule || !node.isContainerNode()) {
+			return;
+		}
+		if (node.isArray()) {
+			for (JsonNode element : node) {
+				visitFields(element, inside, skipped);
+			}
+			return;
+		}
+		for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext();) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			int insideField = inside;
+			for (int f = 0; f < fieldRules.length; f++) {
+				AugmentRule rule = rules[fieldRules[f]];
+				if ((inside & (1 << f)) == 0 && field.getKey().equals(rule.getVisitedField())) {
+					insideField |= 1 << f;
+					if (fieldRules[f] < failedRule) {
+						long start = startTiming();
+						try {
+							rule.visitField(context, rule.isVisitingParents() ? node : field.getValue());
+						} catch (ParseException | RuntimeException e) {
+							fail(fieldRules[f], e);
+						}
+						stopTiming(fieldRules[f], start);
+					}
+				}
+			}
+			if (field.getValue() != skipped) {
+				visitFields(field.getValue(), insideField, skipped);
+			}
+		}
+	}
+
+	private long startTiming() {
+		return ruleNanos != null ? System.nanoTime() : 0;
+	}
+
+	private void stopTiming(int rule, long start) {
+		if (ruleNanos != null) {
+			ruleNanos[rule] += System.nanoTime() - start;
+		}
+	}
+
+	private void fail(int rule, Exception e) {
+		// The rules after a failing rule would not have run at all
+		if (rule < failedRule) {
+			failedRule = rule;
+			failure = e;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package nl.knmi.geoweb.backend.product.taf.augment;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.core.io.NumberInput;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import nl.knmi.geoweb.backend.product.taf.Taf;
+import nl.knmi.geoweb.backend.product.taf.Taf.Forecast.TAFWind;
+
+/**
+ * The facts of {@link AugmentWindGust} and {@link AugmentWindEnoughChange},
+ * derived by {@link WindChange} from the typed TAF instead of from its json. As a rule it only adds
+ * the facts to the wind objects of the json, in the place of both rules.
+ *
+ * The facts are the same as those of the rules when the json is the TAF
+ * serialized without its null fields. TAFs for which the rules would fail are
+ * not supported, those are augmented by the rules themselves.
+ */
+public class TafWindFacts implements AugmentRule {
+	private static final byte GUST_FAST_ENOUGH_SET = 1;
+	private static final byte GUST_FAST_ENOUGH = 2;
+	private static final byte DIFFERENCE_SET = 4;
+	private static final byte ENOUGH_DIFFERENCE_SET = 8;
+	private static final byte ENOUGH_DIFFERENCE = 16;
+
+	// One entry for the wind of the forecast, then one for each change group with wind
+	private final byte[] facts;
+	private final long[] directionDiffs;
+	private final int[] speedDiffs;
+	private int size = 1;
+	// The entry of the next change group with wind visited
+	private int next = 1;
+
+	private TafWindFacts(int capacity) {
+		facts = new byte[capacity];
+		directionDiffs = new long[capacity];
+		speedDiffs = new int[capacity];
+	}
+
+	/**
+	 * @return the wind facts of the TAF, or null if the rules would fail on it
+	 */
+	public static TafWindFacts of(Taf taf) {
+		List<Taf.ChangeForecast> changegroups = taf.getChangegroups() != null ? taf.getChangegroups()
+				: Collections.emptyList();
+		TafWindFacts windFacts = new TafWindFacts(changegroups.size() + 1);
+		TAFWind forecastWind = taf.getForecast() != null ? taf.getForecast().getWind() : null;
+		if (!windFacts.addGustFastEnough(0, forecastWind))
+			return null;
+
+		/* As AugmentWindEnoughChange */
+		WindChange windChange = null;
+		if (forecastWind != null && forecastWind.getDirection() != null && forecastWind.getSpeed() != null) {
+			if (forecastWind.getUnit() == null)
+				return null;
+			windChange = new WindChange(forecastWind.getUnit(), asInt(forecastWind.getDirection()),
+					forecastWind.getSpeed());
+		}
+
+		for (Taf.ChangeForecast changegroup : changegroups) {
+			TAFWind wind = changegroup != null && changegroup.getForecast() != null ? changegroup.getForecast().getWind()
+					: null;
+			// Change groups without wind fields in the json have no facts
+			if (wind == null || (wind.getDirection() == null && wind.getSpeed() == null && wind.getGusts() == null
+					&& wind.getUnit() == null && wind.getSpeedOperator() == null && wind.getGustsOperator() == null))
+				continue;
+			int entry = windFacts.size++;
+			if (!windFacts.addGustFastEnough(entry, wind))
+				return null;
+			if (windChange == null || wind.getDirection() == null || wind.getSpeed() == null)
+				continue;
+			if (wind.getUnit() == null)
+				return null;
+
+			windChange.change(changegroup.getChangeType() != null ? changegroup.getChangeType() : "",
+					asInt(wind.getDirection()), wind.getSpeed(), wind.getUnit(),
+					wind.getGusts() != null && wind.getGusts() > 0);
+			windFacts.facts[entry] |= DIFFERENCE_SET;
+			windFacts.directionDiffs[entry] = windChange.getDirectionDifference();
+			windFacts.speedDiffs[entry] = windChange.getSpeedDifference();
+			if (windChange.getEnoughDifference() != null) {
+				windFacts.facts[entry] |= ENOUGH_DIFFERENCE_SET;
+				if (windChange.getEnoughDifference()) {
+					windFacts.facts[entry] |= ENOUGH_DIFFERENCE;
+				}
+			}
+		}
+		return windFacts;
+	}
+
+	/* As AugmentWindGust */
+	private boolean addGustFastEnough(int entry, TAFWind wind) {
+		if (wind == null)
+			return true;
+		// A direction of another type could hold fields the rules would find
+		if (wind.getDirection() != null && !(wind.getDirection() instanceof Number)
+				&& !(wind.getDirection() instanceof String))
+			return false;
+		if (wind.getGusts() == null)
+			return true;
+		if (wind.getSpeed() == null)
+			return false;
+		facts[entry] |= GUST_FAST_ENOUGH_SET;
+		if (WindChange.isGustFastEnough(wind.getGusts(), wind.getSpeed())) {
+			facts[entry] |= GUST_FAST_ENOUGH;
+		}
+		return true;
+	}
+
+	/* The direction as asInt of its json node */
+	private static int asInt(Object direction) {
+		if (direction instanceof Number) {
+			return ((Number) direction).intValue();
+		}
+		return NumberInput.parseAsInt((String) direction, 0);
+	}
+
+	@Override
+	public boolean visitTaf(AugmentContext taf) {
+		JsonNode forecast = taf.getForecast();
+		if (forecast != null) {
+			put(forecast.get("wind"), 0);
+		}
+		return next < size;
+	}
+
+	@Override
+	public boolean visitChangegroup(AugmentContext taf, ObjectNode changegroup) {
+		JsonNode forecast = taf.getChangegroupForecast();
+		JsonNode wind = forecast != null ? forecast.get("wind") : null;
+		if (wind != null && wind.size() > 0) {
+			put(wind, next++);
+		}
+		return next < size;
+	}
+
+	private void put(JsonNode node, int entry) {
+		if (node == null || facts[entry] == 0)
+			return;
+		ObjectNode wind = (ObjectNode) node;
+		if ((facts[entry] & GUST_FAST_ENOUGH_SET) != 0) {
+			wind.put("gustFastEnough", (facts[entry] & GUST_FAST_ENOUGH) != 0);
+		}
+		if ((facts[entry] & DIFFERENCE_SET) != 0) {
+			wind.put("directionDiff", directionDiffs[entry]);
+			wind.put("speedDiff", speedDiffs[entry]);
+		}
+		if ((facts[entry] & ENOUGH_DIFFERENCE_SET) != 0) {
+			wind.put("windEnoughDifference", (facts[entry] & ENOUGH_DIFFERENCE) != 0);
+		}
+	}
+}
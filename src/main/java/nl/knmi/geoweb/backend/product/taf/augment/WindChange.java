@@ -0,0 +1,76 @@
+package nl.knmi.geoweb.backend.product.taf.augment;
+
+import lombok.Getter;
+import nl.knmi.geoweb.backend.product.taf.TafValidator;
+
+/**
+ * The wind facts of a TAF, for {@link AugmentWindGust} and
+ * {@link AugmentWindEnoughChange} on the json and for {@link TafWindFacts} on
+ * the typed TAF. The change of the wind of each change group is computed from
+ * the wind of the forecast, or of the last change group that is not PROB* or
+ * TEMPO.
+ */
+@Getter
+class WindChange {
+	private static final double MPS_TO_KNOTS_FACTOR = 1.943844; // 1 mps = 1.943844kt
+
+	private String unit;
+	private int windDirection;
+	private int windSpeed;
+	private boolean wasGusty = false;
+
+	// The change of the wind of the last change group
+	private long directionDifference;
+	private int speedDifference;
+	// Null if the change group is not checked for enough difference
+	private Boolean enoughDifference;
+
+	WindChange(String unit, int windDirection, int windSpeed) {
+		this.unit = unit;
+		this.windDirection = windDirection;
+		this.windSpeed = windSpeed;
+	}
+
+	static boolean isGustFastEnough(int gust, int windspeed) {
+		return gust >= (windspeed + 10);
+	}
+
+	/**
+	 * Computes the change of the wind of a change group
+	 */
+	void change(String changeType, int changeWindDirection, int changeWindSpeed, String changeUnit,
+			boolean becomesGusty) {
+		if (!unit.equals(changeUnit)) {
+			// one is in knots and the other in meters per second.
+			// compute it such that both are in knots
+			if (unit.equalsIgnoreCase("KT")) {
+				changeWindSpeed = (int) Math.round((changeWindSpeed * MPS_TO_KNOTS_FACTOR));
+			} else {
+				unit = "KT";
+				changeWindSpeed = (int) Math.round((windSpeed * MPS_TO_KNOTS_FACTOR));
+			}
+		}
+		speedDifference = Math.abs(changeWindSpeed - windSpeed);
+		directionDifference = Math.min(TafValidator.subtract(changeWindDirection, windDirection, 360),
+				TafValidator.subtract(windDirection, changeWindDirection, 360));
+
+		enoughDifference = null;
+		/* From groups are treated as a new TAF */
+		if (!changeType.equals("FM")) {
+			/* Wind speed difference should be more than 5 knots or 2 meters per second.*/
+			int limitSpeedDifference = unit.equals("KT") ? 5 : 2;
+			/* If previous was gusty and new one is not gusty, all is allowed */
+			if (!(wasGusty && !becomesGusty)) {
+				enoughDifference = directionDifference >= 30 || speedDifference >= limitSpeedDifference
+						|| becomesGusty;
+			}
+		}
+
+		/* Copy previous wind if change type is not PROB* or TEMPO */
+		if (!changeType.startsWith("PROB") && !changeType.equalsIgnoreCase("TEMPO")) {
+			windDirection = changeWindDirection;
+			windSpeed = changeWindSpeed;
+			wasGusty = becomesGusty;
+		}
+	}
+}
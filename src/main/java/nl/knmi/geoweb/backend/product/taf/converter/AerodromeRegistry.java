@@ -0,0 +1,73 @@
+package nl.knmi.geoweb.backend.product.taf.converter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fi.fmi.avi.model.immutable.AerodromeImpl;
+import fi.fmi.avi.model.immutable.GeoPositionImpl;
+import fi.fmi.avi.model.taf.immutable.TAFImpl;
+import fi.fmi.avi.model.taf.immutable.TAFReferenceImpl;
+import nl.knmi.geoweb.backend.aviation.AirportInfo;
+
+/**
+ * Keeps the immutable Aerodrome objects used in IWXXM conversion, one per
+ * designator.
+ *
+ * An entry remembers the AirportInfo it was built from. AirportStore creates
+ * new AirportInfo objects when it (re)loads its file, so entries built from
+ * an older load are rebuilt on their next lookup.
+ */
+public class AerodromeRegistry {
+
+    private static class Entry {
+        private final AirportInfo source;
+        private final AerodromeImpl aerodrome;
+
+        private Entry(AirportInfo source, AerodromeImpl aerodrome) {
+            this.source = source;
+            this.aerodrome = aerodrome;
+        }
+    }
+
+    private final Map<String, Entry> aerodromes = new ConcurrentHashMap<>();
+
+    public AerodromeImpl getAerodrome(String designator, AirportInfo airportInfo) {
+        Entry entry = aerodromes.get(designator);
+        if (entry == null || entry.source != airportInfo) {
+            entry = new Entry(airportInfo, buildAerodrome(designator, airportInfo));
+            aerodromes.put(designator, entry);
+        }
+        return entry.aerodrome;
+    }
+
+    /**
+     * Sets the aerodrome of a TAF, and of the report it refers to if any, to
+     * the one shared instance of the designator.
+     */
+    public void setAerodrome(TAFImpl.Builder taf, String designator, AirportInfo airportInfo) {
+        AerodromeImpl aerodrome = getAerodrome(designator, airportInfo);
+        taf.setAerodrome(aerodrome);
+        if (taf.getReferredReport().isPresent()) {
+            TAFReferenceImpl.Builder tafReference = TAFReferenceImpl.Builder.from(taf.getReferredReport().get());
+            tafReference.setAerodrome(aerodrome);
+            taf.setReferredReport(tafReference.build());
+        }
+    }
+
+    private static AerodromeImpl buildAerodrome(String designator, AirportInfo airportInfo) {
+        GeoPositionImpl refPoint = new GeoPositionImpl.Builder()
+                .setCoordinateReferenceSystemId(airportInfo.getGeoLocation().getEPSG())
+                .setCoordinates(new Double[]{airportInfo.getGeoLocation().getLon(), airportInfo.getGeoLocation().getLat()})
+                .setElevationValue(airportInfo.getFieldElevation())
+                .setElevationUom("m")
+                .build();
+
+        return new AerodromeImpl.Builder()
+                .setDesignator(designator)
+                .setLocationIndicatorICAO(airportInfo.getICAOName())
+                .setName(airportInfo.getName())
+                .setFieldElevationValue(airportInfo.getFieldElevation())
+                .setReferencePoint(refPoint)
+                .build();
+    }
+}
@@ -13,11 +13,8 @@ import fi.fmi.avi.converter.ConversionHints;
 import fi.fmi.avi.converter.ConversionIssue;
 import fi.fmi.avi.converter.ConversionResult;
 import fi.fmi.avi.converter.iwxxm.conf.IWXXMConverter;
-import fi.fmi.avi.model.immutable.AerodromeImpl;
-import fi.fmi.avi.model.immutable.GeoPositionImpl;
 import fi.fmi.avi.model.taf.TAF;
 import fi.fmi.avi.model.taf.immutable.TAFImpl;
-import fi.fmi.avi.model.taf.immutable.TAFReferenceImpl;
 import nl.knmi.geoweb.backend.aviation.AirportInfo;
 import nl.knmi.geoweb.backend.aviation.AirportStore;
 import nl.knmi.geoweb.backend.product.ProductConverter;
@@ -58,6 +55,8 @@ public class TafConverter implements ProductConverter<Taf> {
     @Autowired
     AirportStore airportStore;
 
+    private final AerodromeRegistry aerodromeRegistry = new AerodromeRegistry();
+
     public String ToIWXXM_2_1(Taf geoWebTaf) {
 
         ConversionResult<TAF> result = geoWebTafImporter.convertMessage(geoWebTaf, ConversionHints.TAF);
@@ -66,34 +65,7 @@ public class TafConverter implements ProductConverter<Taf> {
             String airportName = geoWebTaf.getMetadata().getLocation();
             AirportInfo airportInfo = airportStore.lookup(airportName);
             if (airportInfo != null) {
-                AerodromeImpl.Builder ad = AerodromeImpl.Builder.from(convertedTAF.getAerodrome());
-
-                GeoPositionImpl.Builder refPoint = new GeoPositionImpl.Builder()
-                        .setCoordinateReferenceSystemId(airportInfo.getGeoLocation().getEPSG())
-                        .setCoordinates(new Double[]{airportInfo.getGeoLocation().getLon(), airportInfo.getGeoLocation().getLat()})
-                        .setElevationValue(airportInfo.getFieldElevation())
-                        .setElevationUom("m");
-                ad.setReferencePoint(refPoint.build());
-
-                ad.setFieldElevationValue(airportInfo.getFieldElevation());
-                ad.setLocationIndicatorICAO(airportInfo.getICAOName());
-                ad.setName(airportInfo.getName());
-                ad.setDesignator(airportName);
-
-
-                convertedTAF.setAerodrome(ad.build());
-
-                if (convertedTAF.getReferredReport().isPresent()) {
-                    AerodromeImpl.Builder referredAd = AerodromeImpl.Builder.from(convertedTAF.getReferredReport().get().getAerodrome());
-                    referredAd.setLocationIndicatorICAO(airportInfo.getICAOName());
-                    referredAd.setReferencePoint(refPoint.build());
-                    referredAd.setDesignator(airportName);
-                    referredAd.setName(airportInfo.getName());
-                    referredAd.setFieldElevationValue(airportInfo.getFieldElevation());
-                    TAFReferenceImpl.Builder tafReference=TAFReferenceImpl.Builder.from(convertedTAF.getReferredReport().get());
-                    tafReference.setAerodrome(referredAd.build());
-                    convertedTAF.setReferredReport(tafReference.build());
-                }
+                aerodromeRegistry.setAerodrome(convertedTAF, airportName, airportInfo);
             } else {
                 System.err.println("airportinfo for " + airportName + " not found");
             }
@@ -35,7 +35,6 @@ import nl.knmi.geoweb.backend.product.airmet.ObscuringPhenomenonList;
 import nl.knmi.geoweb.backend.product.sigmet.geo.GeoUtils;
 import nl.knmi.geoweb.backend.product.sigmetairmet.SigmetAirmetStatus;
 import nl.knmi.geoweb.backend.product.sigmetairmet.SigmetAirmetType;
-import nl.knmi.geoweb.backend.product.sigmetairmet.SigmetAirmetUtils;
 
 public class GeoWebAIRMETConverter extends AbstractGeoWebAirmetConverter<AIRMET> {
 
@@ -232,7 +231,7 @@ public class GeoWebAIRMETConverter extends AbstractGeoWebAirmetConverter<AIRMET>
 
         if (input.getStatus().equals(SigmetAirmetStatus.published)) {
             if (input.getCancels() == null) {
-                phenBuilder.setGeometry(TacOrGeoGeometryImpl.of(GeoUtils.jsonFeature2jtsGeometry((Feature) SigmetAirmetUtils.extractSingleStartGeometry(input.getGeojson()))));
+                phenBuilder.setGeometry(TacOrGeoGeometryImpl.of(GeoUtils.jsonFeature2jtsGeometry((Feature) input.extractSingleStartGeometry())));
                 if ((input.getObs_or_forecast() != null)&& (input.getObs_or_forecast().getObsFcTime() != null)){
                     phenBuilder.setTime(PartialOrCompleteTimeInstant.of(input.getObs_or_forecast().getObsFcTime().atZoneSameInstant(ZoneId.of("UTC"))));
                 }
@@ -0,0 +1,55 @@
+package nl.knmi.geoweb.backend.aviation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class AirportSearchIndexTest {
+
+	private static AirportSearchIndex createIndex() {
+		return new AirportSearchIndex(Arrays.asList(
+				new AirportInfo("EHAM", "AMSTERDAM/SCHIPHOL", 52.3, 4.77, -3),
+				new AirportInfo("EHRD", "ROTTERDAM", 51.95, 4.45, -4),
+				new AirportInfo("EHEH", "EINDHOVEN", 51.45, 5.42, 22),
+				new AirportInfo("EHGG", "GRONINGEN/EELDE", 53.12, 6.58, 5),
+				new AirportInfo("EHAK", "AMELAND", 53.45, 5.68, 0),
+				new AirportInfo("EBBR", "BRUSSELS NATIONAL", 50.9, 4.48, 56)));
+	}
+
+	private static List<String> icaoCodes(List<AirportInfo> airports) {
+		return airports.stream().map(AirportInfo::getICAOName).collect(Collectors.toList());
+	}
+
+	@Test
+	public void testExactIcaoRanksFirst() {
+		AirportSearchIndex index = createIndex();
+		assertThat(icaoCodes(index.search("eham", 10)), is(Arrays.asList("EHAM")));
+	}
+
+	@Test
+	public void testIcaoPrefixIsLimited() {
+		AirportSearchIndex index = createIndex();
+		assertThat(icaoCodes(index.search("EH", 3)), is(Arrays.asList("EHAK", "EHAM", "EHEH")));
+	}
+
+	@Test
+	public void testNamePrefixBeforeWordPrefix() {
+		AirportSearchIndex index = createIndex();
+		assertThat(icaoCodes(index.search("ams", 10)), is(Arrays.asList("EHAM")));
+		assertThat(icaoCodes(index.search("sch", 10)), is(Arrays.asList("EHAM")));
+		assertThat(icaoCodes(index.search("EELDE", 10)), is(Arrays.asList("EHGG")));
+	}
+
+	@Test
+	public void testFuzzyMatch() {
+		AirportSearchIndex index = createIndex();
+		assertThat(icaoCodes(index.search("roterdam", 10)).get(0), is("EHRD"));
+		assertThat(icaoCodes(index.search("eindhovn", 10)), is(Arrays.asList("EHEH")));
+		assertThat(icaoCodes(index.search("xyzzy", 10)).isEmpty(), is(true));
+	}
+}
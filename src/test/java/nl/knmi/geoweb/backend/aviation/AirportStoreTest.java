@@ -0,0 +1,44 @@
+package nl.knmi.geoweb.backend.aviation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class AirportStoreTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/* Tests that concurrent first calls all see the airports and the search index */
+	@Test
+	public void testConcurrentFirstSearch() throws Exception {
+		AirportStore airportStore = new AirportStore(folder.getRoot().getAbsolutePath());
+		airportStore.setOm(new ObjectMapper());
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> found = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				final boolean search = i % 2 == 0;
+				found.add(executor.submit((Callable<Boolean>) () -> search
+						? airportStore.search("EHAM", 1).get(0).getICAOName().equals("EHAM")
+						: airportStore.lookup("EHAM") != null));
+			}
+			for (Future<Boolean> f : found) {
+				assertThat(f.get(), is(true));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package nl.knmi.geoweb.backend.product;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ValidationResultCacheTest {
+	private final ObjectMapper om = new ObjectMapper();
+
+	private static ValidationResultCache<StringBuilder> newCache(int maxEntries, long maxBytes) {
+		return new ValidationResultCache<>(maxEntries, maxBytes, sb -> new StringBuilder(sb), sb -> 2L * sb.length());
+	}
+
+	@Test
+	public void testKeyIgnoresFieldOrder() throws Exception {
+		String key = ValidationResultCache.key("1",
+				om.readTree("{\"a\":1,\"b\":{\"c\":[1,2,{\"d\":\"x\",\"e\":null}],\"f\":true}}"));
+		assertThat(ValidationResultCache.key("1",
+				om.readTree("{\"b\":{\"f\":true,\"c\":[1,2,{\"e\":null,\"d\":\"x\"}]},\"a\":1}")), is(key));
+	}
+
+	@Test
+	public void testKeyDependsOnContentAndVersion() throws Exception {
+		String key = ValidationResultCache.key("1", om.readTree("{\"a\":[1,2]}"));
+		assertThat(ValidationResultCache.key("1", om.readTree("{\"a\":[2,1]}")), not(key));
+		assertThat(ValidationResultCache.key("1", om.readTree("{\"a\":[\"1\",2]}")), not(key));
+		assertThat(ValidationResultCache.key("2", om.readTree("{\"a\":[1,2]}")), not(key));
+	}
+
+	@Test
+	public void testGetReturnsCopies() {
+		ValidationResultCache<StringBuilder> cache = newCache(10, 1000000);
+		assertThat(cache.get("k"), is(nullValue()));
+		StringBuilder result = new StringBuilder("ok");
+		cache.put("k", result);
+		result.append(" changed");
+		StringBuilder cached = cache.get("k");
+		assertThat(cached.toString(), is("ok"));
+		cached.append(" changed");
+		assertThat(cache.get("k").toString(), is("ok"));
+		assertThat(cache.getHits(), is(2L));
+		assertThat(cache.getMisses(), is(1L));
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() {
+		ValidationResultCache<StringBuilder> cache = newCache(2, 1000000);
+		cache.put("a", new StringBuilder("a"));
+		cache.put("b", new StringBuilder("b"));
+		cache.get("a");
+		cache.put("c", new StringBuilder("c"));
+		assertThat(cache.size(), is(2));
+		assertThat(cache.get("b"), is(nullValue()));
+		assertThat(cache.get("a").toString(), is("a"));
+		assertThat(cache.getEvictions(), is(1L));
+	}
+
+	@Test
+	public void testBoundedByBytes() {
+		ValidationResultCache<StringBuilder> cache = newCache(100, 2000);
+		StringBuilder large = new StringBuilder();
+		for (int i = 0; i < 300; i++) {
+			large.append('x');
+		}
+		for (int i = 0; i < 10; i++) {
+			cache.put("k" + i, large);
+			assertThat(cache.getEstimatedBytes() <= 2000, is(true));
+		}
+		assertThat(cache.size(), is(2));
+		assertThat(cache.get("k9").length(), is(300));
+	}
+}
@@ -0,0 +1,48 @@
+package nl.knmi.geoweb.backend.product.sigmet.geo;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.util.Arrays;
+
+import org.geojson.GeoJsonObject;
+import org.geojson.LngLatAlt;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+
+public class GeoJsonConverterTest {
+
+	private static final GeometryFactory gf = new GeometryFactory(new PrecisionModel(PrecisionModel.FLOATING));
+
+	private static org.geojson.Polygon square(double x, double y, double size) {
+		return new org.geojson.Polygon(new LngLatAlt(x, y), new LngLatAlt(x + size, y), new LngLatAlt(x + size, y + size),
+				new LngLatAlt(x, y + size), new LngLatAlt(x, y));
+	}
+
+	@Test
+	public void testPolygonRoundTrip() {
+		org.geojson.Polygon polygon = square(4.1, 51.3, 1.5);
+		polygon.addInteriorRing(Arrays.asList(new LngLatAlt(4.5, 51.5), new LngLatAlt(4.5, 52.0),
+				new LngLatAlt(5.0, 52.0), new LngLatAlt(4.5, 51.5)));
+		Geometry geometry = GeoJsonConverter.toJts(polygon, gf);
+		assertThat(geometry.getGeometryType(), is("Polygon"));
+		assertThat(geometry.getNumPoints(), is(9));
+		assertThat(GeoJsonConverter.toGeoJson(geometry), is((GeoJsonObject) polygon));
+	}
+
+	@Test
+	public void testMultiPolygonAndCollection() {
+		org.geojson.MultiPolygon multiPolygon = new org.geojson.MultiPolygon(square(0, 0, 1));
+		multiPolygon.add(square(5, 5, 1));
+		org.geojson.GeometryCollection collection = new org.geojson.GeometryCollection();
+		collection.add(new org.geojson.Point(4.77, 52.3));
+		collection.add(multiPolygon);
+
+		Geometry geometry = GeoJsonConverter.toJts(collection, gf);
+		assertThat(geometry.getNumGeometries(), is(2));
+		assertThat(geometry.getGeometryN(1).getGeometryType(), is("MultiPolygon"));
+		assertThat(GeoJsonConverter.toGeoJson(geometry), is((GeoJsonObject) collection));
+	}
+}
@@ -0,0 +1,43 @@
+package nl.knmi.geoweb.backend.product.sigmet.geo;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.util.Arrays;
+
+import org.geojson.Feature;
+import org.geojson.LngLatAlt;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+
+public class GeoUtilsTest {
+
+	private static org.geojson.Polygon square(double x, double y, double size) {
+		return new org.geojson.Polygon(new LngLatAlt(x, y), new LngLatAlt(x + size, y), new LngLatAlt(x + size, y + size),
+				new LngLatAlt(x, y + size), new LngLatAlt(x, y));
+	}
+
+	@Test
+	public void testMergeKeepsCounterClockwiseOrientation() {
+		Feature f1 = new Feature();
+		f1.setGeometry(square(0, 0, 2));
+		Feature f2 = new Feature();
+		f2.setGeometry(square(1, 1, 2));
+		Geometry merged = GeoUtils.jsonFeature2jtsGeometry(GeoUtils.merge(f1, f2));
+		assertThat(merged.getArea(), is(7.0));
+		assertThat(org.locationtech.jts.algorithm.Orientation.isCCW(merged.getCoordinates()), is(true));
+	}
+
+	@Test
+	public void testMergeAllAtOnce() {
+		Feature fir = new Feature();
+		fir.setGeometry(square(0, 0, 2));
+		Feature delegated1 = new Feature();
+		delegated1.setGeometry(square(2, 0, 1));
+		Feature delegated2 = new Feature();
+		delegated2.setGeometry(square(-1, 1, 1));
+		Geometry merged = GeoUtils.jsonFeature2jtsGeometry(GeoUtils.merge(Arrays.asList(fir, delegated1, null, delegated2)));
+		assertThat(merged.getArea(), is(6.0));
+		assertThat(org.locationtech.jts.algorithm.Orientation.isCCW(merged.getCoordinates()), is(true));
+	}
+}
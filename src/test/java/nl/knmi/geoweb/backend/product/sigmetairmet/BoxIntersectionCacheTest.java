@@ -0,0 +1,141 @@
+package nl.knmi.geoweb.backend.product.sigmetairmet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.geojson.Feature;
+import org.geojson.LngLatAlt;
+import org.geojson.Polygon;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import nl.knmi.geoweb.backend.product.sigmet.geo.GeoJsonConverter;
+import nl.knmi.geoweb.backend.product.sigmet.geo.GeoUtils;
+
+public class BoxIntersectionCacheTest {
+  private final GeometryFactory gf = GeoUtils.getGeometryFactory();
+
+  /* A new feature each time, as the FIR of every SIGMET is parsed again */
+  private static Feature fir() {
+    Feature f = new Feature();
+    f.setGeometry(polygon(new double[][] { { 0, 50 }, { 10, 50 }, { 10, 60 }, { 0, 60 }, { 0, 50 } }));
+    f.setProperty("ICAOCODE", "EHAA");
+    return f;
+  }
+
+  private static Polygon polygon(double[][] points) {
+    List<LngLatAlt> ring = new ArrayList<>();
+    for (double[] point : points) {
+      ring.add(new LngLatAlt(point[0], point[1]));
+    }
+    return new Polygon(ring);
+  }
+
+  private static Feature box(double minX, double minY, double maxX, double maxY) {
+    Feature f = new Feature();
+    f.setGeometry(polygon(new double[][] { { minX, minY }, { maxX, minY }, { maxX, maxY }, { minX, maxY },
+        { minX, minY } }));
+    f.setProperty("selectionType", "box");
+    return f;
+  }
+
+  private BoxIntersectionCache.BoxIntersection get(Feature fir, Feature box) {
+    Geometry geometry = GeoJsonConverter.toJts(box.getGeometry(), gf);
+    Coordinate[] coords = geometry.getCoordinates();
+    return BoxIntersectionCache.get(fir, geometry, coords, gf);
+  }
+
+  private boolean[] sides(BoxIntersectionCache.BoxIntersection boxIntersection) {
+    boolean[] sides = new boolean[4];
+    for (int i = 0; i < 4; i++) {
+      sides[i] = boxIntersection.isSideIntersecting(i);
+    }
+    return sides;
+  }
+
+  @Before
+  public void setUp() {
+    BoxIntersectionCache.clear();
+  }
+
+  @Test
+  public void testHitMatchesFreshCompute() {
+    Feature box = box(2, 48, 4, 52);
+    BoxIntersectionCache.BoxIntersection computed = get(fir(), box);
+    BoxIntersectionCache.BoxIntersection hit = get(fir(), box(2, 48, 4, 52));
+    assertThat(hit == computed, is(true));
+
+    BoxIntersectionCache.clear();
+    BoxIntersectionCache.BoxIntersection fresh = get(fir(), box);
+    assertThat(fresh == hit, is(false));
+    assertThat(Arrays.equals(sides(hit), sides(fresh)), is(true));
+    assertThat(hit.getSidesIntersectingCount(), is(fresh.getSidesIntersectingCount()));
+    assertThat(hit.getIntersection().equalsExact(fresh.getIntersection()), is(true));
+    assertThat(hit.isEntireFir(), is(fresh.isEntireFir()));
+  }
+
+  @Test
+  public void testOtherFirIsNotHit() {
+    BoxIntersectionCache.BoxIntersection computed = get(fir(), box(2, 48, 4, 52));
+    Feature moved = fir();
+    moved.setGeometry(polygon(new double[][] { { 0, 51 }, { 10, 51 }, { 10, 60 }, { 0, 60 }, { 0, 51 } }));
+    assertThat(get(moved, box(2, 48, 4, 52)) == computed, is(false));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() {
+    Feature fir = fir();
+    List<BoxIntersectionCache.BoxIntersection> computed = new ArrayList<>();
+    for (int i = 0; i < 128; i++) {
+      computed.add(get(fir, box(1, 51, 2 + i * 0.01, 52)));
+    }
+    assertThat(BoxIntersectionCache.size(), is(128));
+    /* Uses the first box again, so the second one is the least recently used */
+    assertThat(get(fir, box(1, 51, 2, 52)) == computed.get(0), is(true));
+    get(fir, box(1, 51, 5, 52));
+    assertThat(BoxIntersectionCache.size(), is(128));
+    assertThat(get(fir, box(1, 51, 2, 52)) == computed.get(0), is(true));
+    assertThat(get(fir, box(1, 51, 2.01, 52)) == computed.get(1), is(false));
+  }
+
+  @Test
+  public void testTacOfBoxDrawnTwice() {
+    String tac = SigmetAirmetUtils.featureToTAC(box(2, 48, 4, 52), fir());
+    assertThat(SigmetAirmetUtils.featureToTAC(box(2, 48, 4, 52), fir()), is(tac));
+    BoxIntersectionCache.clear();
+    assertThat(SigmetAirmetUtils.featureToTAC(box(2, 48, 4, 52), fir()), is(tac));
+
+    String north = SigmetAirmetUtils.featureToTAC(box(-1, 55, 11, 61), fir());
+    assertThat(north, is("N OF N5500"));
+    assertThat(SigmetAirmetUtils.featureToTAC(box(-1, 55, 11, 61), fir()), is(north));
+  }
+
+  @Test
+  public void testTacOfBoxDrawnFromOtherCorner() {
+    Feature clockwise = new Feature();
+    clockwise.setGeometry(polygon(new double[][] { { 4, 52 }, { 4, 48 }, { 2, 48 }, { 2, 52 }, { 4, 52 } }));
+    clockwise.setProperty("selectionType", "box");
+    String tac = SigmetAirmetUtils.featureToTAC(clockwise, fir());
+    assertThat(tac.startsWith("WI "), is(true));
+    /* The same box drawn counterclockwise from the lower left, hitting the entry of the first one */
+    assertThat(SigmetAirmetUtils.featureToTAC(box(2, 48, 4, 52), fir()), is(tac));
+    BoxIntersectionCache.clear();
+    assertThat(SigmetAirmetUtils.featureToTAC(box(2, 48, 4, 52), fir()), is(tac));
+  }
+
+  @Test
+  public void testNonRectangleIsNotCached() {
+    Feature diamond = new Feature();
+    diamond.setGeometry(polygon(new double[][] { { 5, 48 }, { 7, 50 }, { 5, 52 }, { 3, 50 }, { 5, 48 } }));
+    BoxIntersectionCache.BoxIntersection first = get(fir(), diamond);
+    assertThat(get(fir(), diamond) == first, is(false));
+    assertThat(BoxIntersectionCache.size(), is(0));
+  }
+}
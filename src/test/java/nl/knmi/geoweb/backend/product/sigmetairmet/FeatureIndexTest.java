@@ -0,0 +1,67 @@
+package nl.knmi.geoweb.backend.product.sigmetairmet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import org.geojson.Feature;
+import org.geojson.FeatureCollection;
+import org.junit.Test;
+
+public class FeatureIndexTest {
+
+  private static Feature feature(String id, String featureFunction, String relatesTo) {
+    Feature f = new Feature();
+    f.setId(id);
+    if (featureFunction != null) {
+      f.setProperty("featureFunction", featureFunction);
+    }
+    if (relatesTo != null) {
+      f.setProperty("relatesTo", relatesTo);
+    }
+    return f;
+  }
+
+  private static FeatureCollection createCollection() {
+    FeatureCollection fc = new FeatureCollection();
+    fc.add(feature("geom-1", "start", null));
+    fc.add(feature("geom-2", "end", "geom-1"));
+    fc.add(feature("geom-1-i", "intersection", "geom-1"));
+    fc.add(feature("other", null, null));
+    return fc;
+  }
+
+  @Test
+  public void testLookups() {
+    FeatureCollection fc = createCollection();
+    FeatureIndex index = FeatureIndex.of(fc);
+    assertThat(index.findFirst("start").getId(), is("geom-1"));
+    assertThat(index.findRelated("end", "geom-1").getId(), is("geom-2"));
+    assertThat(index.findRelated("end", "geom-2") == null, is(true));
+    assertThat(index.findById("other").getId(), is("other"));
+    assertThat(index.find("intersection").size(), is(1));
+    assertThat(((Feature) SigmetAirmetUtils.extractSingleStartGeometry(index)).getId(), is("geom-1-i"));
+  }
+
+  @Test
+  public void testAddAndRemoveKeepCollectionInSync() {
+    FeatureCollection fc = createCollection();
+    FeatureIndex index = FeatureIndex.of(fc);
+    index.removeRelated("intersection", "geom-1");
+    assertThat(fc.getFeatures().size(), is(3));
+    assertThat(((Feature) SigmetAirmetUtils.extractSingleStartGeometry(index)).getId(), is("geom-1"));
+
+    index.add(feature("geom-1-i", "intersection", "geom-1"));
+    assertThat(fc.getFeatures().size(), is(4));
+    assertThat(index.isFor(fc), is(true));
+    assertThat(((Feature) SigmetAirmetUtils.extractSingleStartGeometry(index)).getId(), is("geom-1-i"));
+  }
+
+  @Test
+  public void testDirectChangesAreDetected() {
+    FeatureCollection fc = createCollection();
+    FeatureIndex index = FeatureIndex.of(fc);
+    fc.add(feature("geom-3", "end", "geom-9"));
+    assertThat(index.isFor(fc), is(false));
+    assertThat(index.isFor(createCollection()), is(false));
+  }
+}
@@ -0,0 +1,40 @@
+package nl.knmi.geoweb.backend.product.sigmetairmet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.util.Arrays;
+
+import org.geojson.LngLatAlt;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+
+public class LatLonEncoderTest {
+
+  @Test
+  public void testLatLon() {
+    assertThat(LatLonEncoder.lat(52.5), is("N5230"));
+    assertThat(LatLonEncoder.lon(4.75), is("E00445"));
+    assertThat(LatLonEncoder.lat(-5.1), is("S0506"));
+    assertThat(LatLonEncoder.lon(-120.0), is("W12000"));
+    assertThat(LatLonEncoder.lon(-12.0), is("W01200"));
+    assertThat(LatLonEncoder.lat(0), is("N0000"));
+  }
+
+  @Test
+  public void testRoundsUpToNextDegree() {
+    assertThat(LatLonEncoder.lat(52.9999), is("N5300"));
+    assertThat(LatLonEncoder.lon(-4.9999), is("W00500"));
+    assertThat(LatLonEncoder.lon(179.9999), is("E18000"));
+  }
+
+  @Test
+  public void testAppendPoints() {
+    StringBuilder sb = new StringBuilder("WI ");
+    LatLonEncoder.appendPoints(sb, Arrays.asList(new LngLatAlt(4.75, 52.5), new LngLatAlt(5.0, 53.0)));
+    assertThat(sb.toString(), is("WI N5230 E00445 - N5300 E00500"));
+
+    Coordinate[] coords = { new Coordinate(3.0, 51.25) };
+    assertThat(LatLonEncoder.appendPoints(new StringBuilder(), coords).toString(), is("N5115 E00300"));
+  }
+}
@@ -0,0 +1,196 @@
+package nl.knmi.geoweb.backend.product.taf;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.load.configuration.LoadingConfiguration;
+import com.github.fge.jsonschema.core.load.uri.URITranslatorConfiguration;
+import com.github.fge.jsonschema.core.report.ListReportProvider;
+import com.github.fge.jsonschema.core.report.LogLevel;
+import com.github.fge.jsonschema.core.report.ProcessingMessage;
+import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.main.JsonSchema;
+import com.github.fge.jsonschema.main.JsonSchemaFactory;
+
+import nl.knmi.adaguc.tools.Tools;
+
+/* Conformance of the compiled schemas with the json-schema-validator library */
+public class SchemaProgramTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private TafSchemaStore tafSchemaStore;
+	private TafSchemaStore.Schemas schemas;
+	private URI namespace;
+	private JsonSchemaFactory factory;
+
+	@Before
+	public void setUp() throws IOException {
+		tafSchemaStore = new TafSchemaStore(folder.getRoot().getAbsolutePath());
+		schemas = tafSchemaStore.getSchemas();
+		namespace = TafSchemaStore.NAMESPACE;
+		factory = JsonSchemaFactory.newBuilder().setReportProvider(new ListReportProvider(LogLevel.ERROR, LogLevel.FATAL))
+				.setLoadingConfiguration(LoadingConfiguration.newBuilder()
+						.setURITranslatorConfiguration(
+								URITranslatorConfiguration.newBuilder().setNamespace(namespace.toString()).freeze())
+						.addScheme(TafSchemaStore.SCHEME,
+								uri -> new ByteArrayInputStream(schemas.getSchemaFile(uri).getBytes(StandardCharsets.UTF_8)))
+						.freeze())
+				.freeze();
+	}
+
+	private SchemaProgram compile(JsonNode schema) {
+		return SchemaProgram.compile(schema, namespace, schemas::getSchemaNode);
+	}
+
+	/* The messages of a report without their texts, in a fixed order */
+	private static JsonNode normalize(Iterable<JsonNode> messages) {
+		List<String> normalized = new ArrayList<>();
+		for (JsonNode message : messages) {
+			ObjectNode node = JsonNodeFactory.instance.objectNode();
+			node.put("level", message.path("level").asText());
+			node.put("keyword", message.path("keyword").asText());
+			node.set("schema", message.path("schema"));
+			node.put("instance", message.path("instance").path("pointer").asText());
+			if (message.has("reports")) {
+				ObjectNode reports = node.putObject("reports");
+				TreeSet<String> pointers = new TreeSet<>();
+				message.get("reports").fieldNames().forEachRemaining(pointers::add);
+				pointers.forEach(pointer -> reports.set(pointer, normalize(message.get("reports").get(pointer))));
+			}
+			normalized.add(node.toString());
+		}
+		Collections.sort(normalized);
+		ArrayNode result = JsonNodeFactory.instance.arrayNode();
+		normalized.forEach(result::add);
+		return result;
+	}
+
+	private static JsonNode normalize(ProcessingReport report) {
+		List<JsonNode> messages = new ArrayList<>();
+		for (ProcessingMessage message : report) {
+			messages.add(message.asJson());
+		}
+		return normalize(messages);
+	}
+
+	/* All TAFs with one field removed or replaced by a wrong value */
+	private static List<JsonNode> mutations(JsonNode taf) {
+		JsonNode[] values = { null, JsonNodeFactory.instance.textNode("x"), JsonNodeFactory.instance.numberNode(-1),
+				JsonNodeFactory.instance.numberNode(new BigDecimal("1.5")),
+				JsonNodeFactory.instance.objectNode(), JsonNodeFactory.instance.arrayNode(),
+				JsonNodeFactory.instance.textNode("2017-13-01T00:00:00Z") };
+		List<JsonNode> mutations = new ArrayList<>();
+		List<String> pointers = new ArrayList<>();
+		collectPointers(taf, "", pointers);
+		for (String pointer : pointers) {
+			int slash = pointer.lastIndexOf('/');
+			String field = pointer.substring(slash + 1);
+			for (JsonNode value : values) {
+				JsonNode mutation = taf.deepCopy();
+				JsonNode parent = mutation.at(pointer.substring(0, slash));
+				if (parent.isObject()) {
+					if (value == null) {
+						((ObjectNode) parent).remove(field);
+					} else {
+						((ObjectNode) parent).set(field, value);
+					}
+				} else if (value == null) {
+					((ArrayNode) parent).remove(Integer.parseInt(field));
+				} else {
+					((ArrayNode) parent).set(Integer.parseInt(field), value);
+				}
+				mutations.add(mutation);
+			}
+		}
+		return mutations;
+	}
+
+	private static void collectPointers(JsonNode node, String pointer, List<String> pointers) {
+		if (node.isObject()) {
+			node.fieldNames().forEachRemaining(field -> {
+				pointers.add(pointer + "/" + field);
+				collectPointers(node.get(field), pointer + "/" + field, pointers);
+			});
+		} else if (node.isArray()) {
+			for (int i = 0; i < node.size(); i++) {
+				pointers.add(pointer + "/" + i);
+				collectPointers(node.get(i), pointer + "/" + i, pointers);
+			}
+		}
+	}
+
+	@Test
+	public void testSameReportsAsLibrary() throws Exception {
+		JsonNode tafSchemaNode = ValidationUtils.getJsonNode(tafSchemaStore.getLatestTafSchema());
+		JsonNode enrichedSchemaNode = ValidationUtils.getJsonNode(tafSchemaStore.getLatestEnrichedTafSchema());
+		JsonSchema tafSchema = factory.getJsonSchema(tafSchemaNode);
+		JsonSchema enrichedSchema = factory.getJsonSchema(enrichedSchemaNode);
+		SchemaProgram tafProgram = compile(tafSchemaNode);
+		SchemaProgram enrichedProgram = compile(enrichedSchemaNode);
+
+		int failures = 0;
+		for (String resource : new String[] { "./Taf_valid.json", "./Taf_invalid.json" }) {
+			JsonNode taf = ValidationUtils.getJsonNode(Tools.readResource(resource));
+			List<JsonNode> tafs = mutations(taf);
+			tafs.add(taf);
+			for (JsonNode instance : tafs) {
+				ProcessingReport expected = tafSchema.validate(instance);
+				assertThat(instance.toString(), normalize(tafProgram.validate(instance)), is(normalize(expected)));
+				if (!expected.isSuccess()) {
+					failures++;
+				}
+
+				JsonNode enriched = instance.deepCopy();
+				try {
+					TafValidator.enrich(enriched);
+				} catch (Exception e) {
+					continue;
+				}
+				assertThat(enriched.toString(), normalize(enrichedProgram.validate(enriched)),
+						is(normalize(enrichedSchema.validate(enriched))));
+			}
+		}
+		/* Most mutations are invalid, so the errors are compared too */
+		assertThat(failures > 100, is(true));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedKeyword() throws Exception {
+		compile(ValidationUtils.getJsonNode("{\"type\":\"string\",\"pattern\":\"^[A-Z]{4}$\"}"));
+	}
+
+	@Test
+	public void testUnresolvableReference() throws Exception {
+		SchemaProgram program = compile(ValidationUtils
+				.getJsonNode("{\"properties\":{\"a\":{\"type\":\"string\"},\"b\":{\"$ref\":\"#/definitions/b\"}}}"));
+		assertThat(program.validate(ValidationUtils.getJsonNode("{\"a\":\"x\"}")).isSuccess(), is(true));
+		assertThat(program.validate(ValidationUtils.getJsonNode("{\"a\":1}")).isSuccess(), is(false));
+		try {
+			program.validate(ValidationUtils.getJsonNode("{\"b\":1}"));
+			assertThat("validating a reference that can not be resolved", false, is(true));
+		} catch (ProcessingException e) {
+			assertThat(e.getMessage().contains("#/definitions/b"), is(true));
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package nl.knmi.geoweb.backend.product.taf;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.time.OffsetDateTime;
+
+import org.junit.Test;
+
+public class TAFtoTACMapsTest {
+	private static String padded(Integer value, int width) {
+		return TAFtoTACMaps.toTAC(out -> TAFtoTACMaps.appendPadded(out, value, width));
+	}
+
+	/* Tests that numbers are padded as String.format pads them */
+	@Test
+	public void testAppendPadded() {
+		int[] values = { 0, 5, 9, 10, 45, 99, 100, 360, 999, 1000, 9999, 12345, -1, -5, -45, -999,
+				Integer.MAX_VALUE, Integer.MIN_VALUE };
+		for (int width = 1; width <= 4; width++) {
+			for (int value : values) {
+				assertThat(padded(value, width), is(String.format("%0" + width + "d", value)));
+			}
+		}
+		assertThat(padded(null, 3), is(String.format("%03d", (Integer) null)));
+	}
+
+	@Test
+	public void testAppendTimes() {
+		for (String time : new String[] { "2018-06-18T12:30:00Z", "2018-06-01T00:00:00Z", "2018-03-01T00:00:00+02:00",
+				"2018-12-31T23:59:00Z", "2018-01-09T00:05:00Z" }) {
+			OffsetDateTime t = OffsetDateTime.parse(time);
+			assertThat(TAFtoTACMaps.toTAC(out -> TAFtoTACMaps.appendDDHHMM(out, t)), is(TAFtoTACMaps.toDDHHMM(t)));
+			assertThat(TAFtoTACMaps.toTAC(out -> TAFtoTACMaps.appendDDHH(out, t)), is(TAFtoTACMaps.toDDHH(t)));
+			assertThat(TAFtoTACMaps.toTAC(out -> TAFtoTACMaps.appendDDHH24(out, t)), is(TAFtoTACMaps.toDDHH24(t)));
+		}
+		assertThat(TAFtoTACMaps.toDDHH24(OffsetDateTime.parse("2018-03-01T00:00:00Z")), is("2824"));
+	}
+}
@@ -0,0 +1,141 @@
+package nl.knmi.geoweb.backend.product.taf;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import nl.knmi.adaguc.tools.Tools;
+
+public class TafSchemaStoreTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private TafSchemaStore tafSchemaStore;
+	private TafValidator tafValidator;
+
+	@Before
+	public void setUp() throws IOException {
+		tafSchemaStore = new TafSchemaStore(folder.getRoot().getAbsolutePath());
+		ObjectMapper om = new ObjectMapper();
+		om.registerModule(new JavaTimeModule());
+		tafValidator = new TafValidator(tafSchemaStore, om);
+		tafSchemaStore.setTafValidator(tafValidator);
+	}
+
+	/* Tests that reload picks up a schema placed in the directory at once */
+	@Test
+	public void testReload() throws Exception {
+		TafSchemaStore.Schemas schemas = tafSchemaStore.getSchemas();
+		assertThat(tafSchemaStore.getSchemas() == schemas, is(true));
+		assertThat(schemas.getLatestTafSchema(), is(Tools.readResource("TafValidatorSchema.json")));
+		assertThat(schemas.getSchemaNames().contains("wind.json"), is(true));
+
+		String schema = "{\"type\":\"object\"}";
+		Tools.writeFile(tafSchemaStore.getDirectory() + "/taf_schema_9999999999.json", schema);
+		assertThat(tafSchemaStore.getSchemas() == schemas, is(true));
+
+		TafSchemaStore.Schemas reloaded = tafSchemaStore.reload();
+		assertThat(reloaded.getVersion(), is(schemas.getVersion() + 1));
+		assertThat(reloaded.getEtag().equals(schemas.getEtag()), is(false));
+		assertThat(tafSchemaStore.getLatestTafSchema(), is(schema));
+		/* The default TAF schema is left out once the store has one of its own */
+		assertThat(tafSchemaStore.getTafSchemas().length, is(2));
+		assertThat(reloaded.getSchemaNames().contains("taf_schema_0.json"), is(false));
+		/* Nothing changed since */
+		assertThat(tafSchemaStore.reload() == reloaded, is(true));
+	}
+
+	/* Tests that getSchemas picks up schemas placed in or changed in the directory by hand */
+	@Test
+	public void testDirectoryCheck() throws Exception {
+		tafSchemaStore.directoryCheckMillis = 0;
+		TafSchemaStore.Schemas schemas = tafSchemaStore.getSchemas();
+		assertThat(tafSchemaStore.getSchemas() == schemas, is(true));
+
+		String file = tafSchemaStore.getDirectory() + "/taf_schema_9999999999.json";
+		Tools.writeFile(file, "{\"type\":\"object\"}");
+		TafSchemaStore.Schemas added = tafSchemaStore.getSchemas();
+		assertThat(added.getVersion(), is(schemas.getVersion() + 1));
+		assertThat(added.getLatestTafSchema(), is("{\"type\":\"object\"}"));
+
+		Tools.writeFile(file, "{\"type\":\"object\",\"required\":[\"metadata\"]}");
+		TafSchemaStore.Schemas changed = tafSchemaStore.getSchemas();
+		assertThat(changed.getVersion(), is(added.getVersion() + 1));
+		assertThat(tafSchemaStore.getSchemas() == changed, is(true));
+
+		new File(file).delete();
+		assertThat(tafSchemaStore.getLatestTafSchema(), is(Tools.readResource("TafValidatorSchema.json")));
+	}
+
+	/* Tests that a stored schema is published as a new version and written to disk */
+	@Test
+	public void testStoreTafSchema() throws Exception {
+		TafSchemaStore.Schemas schemas = tafSchemaStore.getSchemas();
+		ObjectMapper om = new ObjectMapper();
+		String schema = om.readTree(Tools.readResource("TafValidatorSchema.json")).toString();
+		tafSchemaStore.storeTafSchema(schema, om);
+
+		TafSchemaStore.Schemas stored = tafSchemaStore.getSchemas();
+		assertThat(stored.getVersion() > schemas.getVersion(), is(true));
+		assertThat(stored.getLatestTafSchema(), is(schema));
+		/* The old version is left as it was */
+		assertThat(schemas.getLatestTafSchema(), is(Tools.readResource("TafValidatorSchema.json")));
+
+		TafSchemaStore read = new TafSchemaStore(folder.getRoot().getAbsolutePath());
+		assertThat(read.getSchemaVersion(), is(stored.getEtag()));
+		assertThat(new File(tafSchemaStore.getDirectory()).list().length, is(1));
+	}
+
+	/* Tests that the default schemas are served from the classpath without writing them */
+	@Test
+	public void testDefaultSchemas() throws Exception {
+		TafSchemaStore.Schemas schemas = tafSchemaStore.getSchemas();
+		assertThat(new File(tafSchemaStore.getDirectory()).list().length, is(0));
+		assertThat(schemas.getLatestEnrichedTafSchema(), is(Tools.readResource("EnrichedTafValidatorSchema.json")));
+		assertThat(schemas.getSchemaFile(TafSchemaStore.NAMESPACE.resolve("wind.json")),
+				is(Tools.readResource("SubSchemas/wind.json")));
+		assertThat(schemas.getSchemaNode(TafSchemaStore.NAMESPACE.resolve("wind.json")),
+				is(schemas.getSchemaNode("wind.json")));
+		assertThat(schemas.getSchemaFile(URI.create("file:/wind.json")) == null, is(true));
+	}
+
+	/* Tests that a store seeded with copies of the schemas, as older versions did, validates */
+	@Test
+	public void testSeededStore() throws Exception {
+		String dir = tafSchemaStore.getDirectory();
+		Tools.writeFile(dir + "/taf_schema_1530000000.json", Tools.readResource("TafValidatorSchema.json"));
+		Tools.writeFile(dir + "/enriched_taf_schema_1530000000.json",
+				Tools.readResource("EnrichedTafValidatorSchema.json"));
+		for (String subschema : new String[] { "clouds.json", "weathergroup.json", "visibility.json", "wind.json",
+				"forecast.json", "weather.json", "metadata.json", "vertical_visibility.json", "changegroup.json",
+				"temperature.json" }) {
+			Tools.writeFile(dir + "/" + subschema, Tools.readResource("SubSchemas/" + subschema));
+		}
+		TafSchemaStore.Schemas schemas = tafSchemaStore.getSchemas();
+		assertThat(schemas.getTafSchemas().length, is(2));
+		assertThat(schemas.getSchemaNames().contains("enriched_taf_schema_0.json"), is(false));
+		assertThat(schemas.getCurrentSchemaNames().size(), is(12));
+
+		String taf = new ObjectMapper().readTree(Tools.readResource("Taf_valid.json")).toString();
+		assertThat(tafValidator.validate(taf).isSucceeded(), is(true));
+
+		/* A second enriched TAF schema version */
+		Tools.writeFile(dir + "/enriched_taf_schema_1540000000.json",
+				Tools.readResource("EnrichedTafValidatorSchema.json"));
+		TafSchemaStore.Schemas reloaded = tafSchemaStore.reload();
+		assertThat(reloaded.getTafSchemas().length, is(3));
+		assertThat(tafValidator.swapSchemas(reloaded).get(), is(true));
+		assertThat(tafValidator.validate(taf).isSucceeded(), is(true));
+	}
+}
@@ -3,15 +3,28 @@ package nl.knmi.geoweb.backend.product.taf;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 
+import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -33,6 +46,9 @@ public class TafValidatorTest {
 	@Qualifier("tafObjectMapper")
 	private ObjectMapper tafObjectMapper;
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void testValidateOK() throws Exception {
 		TafSchemaStore tafSchemaStore = new TafSchemaStore(productstorelocation);
@@ -215,4 +231,233 @@ public class TafValidatorTest {
 		assertThat(report.isSucceeded(), is(false));
 
 	}
+
+	/* Tests that a batch gives the same results, in the same order, as validating one by one */
+	@Test
+	public void testValidateAll() throws Exception {
+		TafSchemaStore tafSchemaStore = new TafSchemaStore(productstorelocation);
+		TafValidator tafValidator = new TafValidator(tafSchemaStore, tafObjectMapper);
+
+		String validTaf = new JSONObject(Tools.readResource("Taf_valid.json")).toString();
+		String invalidTaf = new JSONObject(Tools.readResource("./Taf_invalid.json")).toString();
+		List<String> tafs = Arrays.asList(validTaf, invalidTaf, validTaf, "{not json", invalidTaf);
+
+		TafBatchValidationResult batch = tafValidator.validateAll(tafs, 2);
+		assertThat(batch.getResults().size(), is(5));
+		assertThat(batch.getSucceededCount(), is(2));
+		assertThat(batch.isSucceeded(), is(false));
+		assertThat(batch.getThreads(), is(2));
+		assertThat(batch.getAugmentNanosByRule().keySet().size(), is(TafValidator.AUGMENT_RULES.size()));
+		assertThat(batch.getResults().get(0).isSucceeded(), is(true));
+		assertThat(batch.getResults().get(2).isSucceeded(), is(true));
+		assertThat(batch.getResults().get(3).getErrors().toString(),
+				is("{\"/forecast/message\":[\"Unable to validate TAF\"]}"));
+		assertThat(batch.getResults().get(4).getErrors().toString(),
+				is(tafValidator.validate(invalidTaf).getErrors().toString()));
+	}
+
+	/* Tests that the TAC generated during validation is returned with the result */
+	@Test
+	public void testValidateReturnsTac() throws Exception {
+		TafSchemaStore tafSchemaStore = new TafSchemaStore(productstorelocation);
+		TafValidator tafValidator = new TafValidator(tafSchemaStore, tafObjectMapper);
+
+		String taf = new JSONObject(Tools.readResource("Taf_valid.json")).toString();
+		TafValidationResult report = tafValidator.validate(taf);
+		assertThat(report.isSucceeded(), is(true));
+		assertThat(report.getTac(), is(Taf.fromJSONString(taf, tafObjectMapper).toTAC()));
+
+		TafValidationResult typedReport = tafValidator.validate(Taf.fromJSONString(taf, tafObjectMapper));
+		assertThat(typedReport.isSucceeded(), is(true));
+		assertThat(typedReport.getTac(), is(report.getTac()));
+	}
+
+	/* Tests that the time of each stage is recorded, and returned in debug mode */
+	@Test
+	public void testValidationStages() throws Exception {
+		TafSchemaStore tafSchemaStore = new TafSchemaStore(productstorelocation);
+		TafValidator tafValidator = new TafValidator(tafSchemaStore, tafObjectMapper);
+		TafValidationStageMetrics metrics = new TafValidationStageMetrics();
+		tafValidator.setMetrics(metrics);
+
+		String taf = new JSONObject(Tools.readResource("Taf_valid.json")).toString();
+		TafValidationResult report = tafValidator.validate(taf);
+		assertThat(report.getStageNanos() == null, is(true));
+		for (TafValidationStage stage : TafValidationStage.values()) {
+			assertThat(stage.toString(), metrics.getCount(stage) > 0, is(true));
+		}
+
+		tafValidator.setDebug(true);
+		tafValidator.setMeasuringAllocations(true);
+		String invalidTaf = new JSONObject(Tools.readResource("./Taf_invalid.json")).toString();
+		report = tafValidator.validate(invalidTaf);
+		assertThat(report.getStageNanos().keySet(), is(EnumSet.allOf(TafValidationStage.class)));
+		if (TafValidationStageTimer.isAllocationMeasurable()) {
+			assertThat(report.getStageAllocatedBytes().get(TafValidationStage.STRUCTURE_VALIDATION) > 0, is(true));
+		}
+		/* A cached result has the stages of the validation that made it */
+		assertThat(tafValidator.validate(invalidTaf).getStageNanos(), is(report.getStageNanos()));
+	}
+
+	/* Tests that a stored schema is used once it is compiled */
+	@Test
+	public void testSwapSchemas() throws Exception {
+		TafSchemaStore tafSchemaStore = new TafSchemaStore(folder.getRoot().getAbsolutePath());
+		TafValidator tafValidator = new TafValidator(tafSchemaStore, tafObjectMapper);
+		tafSchemaStore.setTafValidator(tafValidator);
+
+		String taf = new JSONObject(Tools.readResource("Taf_valid.json")).toString();
+		assertThat(tafValidator.validate(taf).isSucceeded(), is(true));
+
+		tafSchemaStore.storeTafSchema("{\"type\":\"object\",\"required\":[\"unknownField\"]}", tafObjectMapper);
+		assertThat(tafValidator.swapSchemas(tafSchemaStore.getSchemas()).get(), is(true));
+		assertThat(tafValidator.validate(taf).isSucceeded(), is(false));
+	}
+
+	/* Tests that structural validation only checks the TAF schema */
+	@Test
+	public void testValidateStructural() throws Exception {
+		TafSchemaStore tafSchemaStore = new TafSchemaStore(productstorelocation);
+		TafValidator tafValidator = new TafValidator(tafSchemaStore, tafObjectMapper);
+
+		/* A change in wind that is too small is found by the enrichment rules only */
+		String tafString = "{\"forecast\":{\"caVOK\":true,\"wind\":{\"direction\":120,\"speed\":40,\"unit\":\"KT\"}},\"metadata\":{\"location\":\"EHAM\",\"validityStart\":\"2018-06-18T12:00:00Z\",\"validityEnd\":\"2018-06-19T18:00:00Z\"},\"changegroups\":[{\"changeStart\":\"2018-06-18T12:00:00Z\",\"changeEnd\":\"2018-06-18T14:00:00Z\",\"changeType\":\"PROB30\",\"forecast\":{\"caVOK\":true,\"wind\":{\"direction\":120,\"speed\":40,\"unit\":\"KT\"}}}]}";
+		TafValidationResult report = tafValidator.validate(tafString, TafValidationMode.STRUCTURAL);
+		assertThat(report.isSucceeded(), is(true));
+		assertThat(report.getMode(), is(TafValidationMode.STRUCTURAL));
+		assertThat(report.getTac() == null, is(true));
+
+		report = tafValidator.validate(tafString);
+		assertThat(report.isSucceeded(), is(false));
+		assertThat(report.getMode(), is(TafValidationMode.FULL));
+
+		String invalidTaf = new JSONObject(Tools.readResource("./Taf_invalid.json")).toString();
+		report = tafValidator.validate(invalidTaf, TafValidationMode.STRUCTURAL);
+		assertThat(report.isSucceeded(), is(false));
+		assertThat(report.getErrors().has("/changegroups/1/forecast/visibility/value"), is(true));
+	}
+
+	/* Tests that incremental validation of a changing TAF gives the same errors as validating it whole */
+	@Test
+	public void testValidateIncremental() throws Exception {
+		TafSchemaStore tafSchemaStore = new TafSchemaStore(productstorelocation);
+		TafValidator incrementalValidator = new TafValidator(tafSchemaStore, tafObjectMapper);
+		TafValidator tafValidator = new TafValidator(tafSchemaStore, tafObjectMapper);
+
+		JSONObject taf = new JSONObject(Tools.readResource("./Taf_valid.json"));
+		List<String> versions = new ArrayList<>();
+		versions.add(taf.toString());
+		/* Let the clouds of the forecast descend in height and the first change group end before it starts */
+		taf.getJSONObject("forecast").put("clouds", new JSONArray("[{\"amount\":\"OVC\",\"height\":26},{\"amount\":\"FEW\",\"height\":1}]"));
+		versions.add(taf.toString());
+		taf.getJSONArray("changegroups").getJSONObject(0).put("changeEnd", "2017-08-04T13:00:00Z");
+		versions.add(taf.toString());
+		/* Change a valid change group only; the forecast is only checked in depth when all change groups are valid */
+		taf.getJSONArray("changegroups").getJSONObject(2).getJSONObject("forecast").getJSONObject("wind").put("speed", 8);
+		versions.add(taf.toString());
+		/* Fix the first change group */
+		taf.getJSONArray("changegroups").getJSONObject(0).put("changeEnd", "2017-08-04T20:00:00Z");
+		versions.add(taf.toString());
+		/* Add and remove a change group */
+		taf.getJSONArray("changegroups").put(new JSONObject(taf.getJSONArray("changegroups").getJSONObject(1).toString()));
+		versions.add(taf.toString());
+		taf.getJSONArray("changegroups").remove(0);
+		versions.add(taf.toString());
+		versions.add(taf.toString());
+		addFailingChangegroupVersions(taf, 235, versions);
+
+		assertIncrementalIsFull(incrementalValidator, tafValidator, versions);
+	}
+
+	/*
+	 * Lets the wind direction of the first and the last change group fail, then fixes the first. The
+	 * last change group is only checked in depth by the validator once the first one passes.
+	 */
+	private static void addFailingChangegroupVersions(JSONObject taf, int direction, List<String> versions)
+			throws JSONException {
+		JSONArray changegroups = taf.getJSONArray("changegroups");
+		JSONObject firstWind = changegroups.getJSONObject(0).getJSONObject("forecast").getJSONObject("wind");
+		JSONObject lastWind = changegroups.getJSONObject(changegroups.length() - 1).getJSONObject("forecast")
+				.getJSONObject("wind");
+		Object firstDirection = firstWind.get("direction");
+		Object lastDirection = lastWind.get("direction");
+		firstWind.put("direction", direction);
+		lastWind.put("direction", direction);
+		versions.add(taf.toString());
+		firstWind.put("direction", firstDirection);
+		versions.add(taf.toString());
+		lastWind.put("direction", lastDirection);
+		versions.add(taf.toString());
+	}
+
+	private static void assertIncrementalIsFull(TafValidator incrementalValidator, TafValidator tafValidator,
+			List<String> versions) throws Exception {
+		for (String version : versions) {
+			TafValidationResult incremental = incrementalValidator.validateIncremental(version);
+			TafValidationResult full = tafValidator.validate(version);
+			assertThat(incremental.isSucceeded(), is(full.isSucceeded()));
+			assertThat(incremental.getErrors(), is(full.getErrors()));
+			/* The incremental result is not taken for a validation of the whole TAF */
+			assertThat(incrementalValidator.validate(version) == incremental, is(false));
+		}
+	}
+
+	/* Tests incremental validation with a schema that checks the change groups without oneOf */
+	@Test
+	public void testValidateIncrementalPlainSchema() throws Exception {
+		String dir = folder.getRoot().getAbsolutePath() + "/tafs/schemas";
+		new File(dir).mkdirs();
+		Tools.writeFile(dir + "/taf_schema_1600000000.json", "{\"type\":\"object\",\"properties\":{\"changegroups\":"
+				+ "{\"type\":\"array\",\"items\":{\"type\":\"object\",\"properties\":{\"forecast\":{\"type\":\"object\","
+				+ "\"properties\":{\"wind\":{\"type\":\"object\",\"properties\":{\"direction\":{\"$geoweb::messages\":"
+				+ "{\"maximum\":\"Direction too large\"},\"maximum\":360}}}}}}}}}}");
+		Tools.writeFile(dir + "/enriched_taf_schema_1600000000.json", "{\"type\":\"object\"}");
+		TafSchemaStore tafSchemaStore = new TafSchemaStore(folder.getRoot().getAbsolutePath());
+		TafValidator incrementalValidator = new TafValidator(tafSchemaStore, tafObjectMapper);
+		TafValidator tafValidator = new TafValidator(tafSchemaStore, tafObjectMapper);
+
+		JSONObject taf = new JSONObject(Tools.readResource("./Taf_valid.json"));
+		List<String> versions = new ArrayList<>();
+		versions.add(taf.toString());
+		addFailingChangegroupVersions(taf, 400, versions);
+
+		assertIncrementalIsFull(incrementalValidator, tafValidator, versions);
+		assertThat(tafValidator.validate(versions.get(2)).getErrors().has("/changegroups/2/forecast/wind/direction"),
+				is(true));
+	}
+
+	/* Tests that errors on a pointer are dropped in favour of errors on its descendants */
+	@Test
+	public void testMostSpecificErrors() {
+		Map<String, Set<String>> errors = new HashMap<>();
+		errors.put("/forecast", Collections.singleton("forecast"));
+		errors.put("/forecast/wind", Collections.singleton("wind"));
+		errors.put("/forecast/wind/unit", Collections.singleton("unit"));
+		errors.put("/forecast/windEnoughDifference", Collections.singleton("difference"));
+		errors.put("/changegroups/1", Collections.singleton("changegroup 1"));
+		errors.put("/changegroups/10/forecast/clouds", Collections.singleton("changegroup 10"));
+		errors.put("/metadata", Collections.singleton("metadata"));
+
+		Map<String, Set<String>> mostSpecific = TafValidator.mostSpecificErrors(errors);
+		assertThat(new TreeSet<>(mostSpecific.keySet()), is(new TreeSet<>(Arrays.asList("/changegroups/1",
+				"/changegroups/10/forecast/clouds", "/forecast/wind/unit", "/forecast/windEnoughDifference", "/metadata"))));
+		assertThat(mostSpecific.get("/forecast/wind/unit"), is(Collections.singleton("unit")));
+	}
+
+	/* Regression test for the time needed to reduce the errors of a badly malformed TAF */
+	@Test(timeout = 5000)
+	public void testMostSpecificErrors_many_errors() {
+		Map<String, Set<String>> errors = new HashMap<>();
+		for (int changegroup = 0; changegroup < 1000; changegroup++) {
+			String forecast = "/changegroups/" + changegroup + "/forecast";
+			errors.put(forecast, Collections.singleton("forecast"));
+			for (String field : Arrays.asList("wind/unit", "visibility/value", "weather/0/qualifier", "clouds/1/amount")) {
+				errors.put(forecast + "/" + field.substring(0, field.indexOf('/')), Collections.singleton("field"));
+				errors.put(forecast + "/" + field, Collections.singleton("value"));
+			}
+		}
+		for (int i = 0; i < 100; i++) {
+			assertThat(TafValidator.mostSpecificErrors(errors).size(), is(4000));
+		}
+	}
 }
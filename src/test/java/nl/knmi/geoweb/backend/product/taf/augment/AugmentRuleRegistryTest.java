@@ -0,0 +1,165 @@
+package nl.knmi.geoweb.backend.product.taf.augment;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import nl.knmi.adaguc.tools.Tools;
+import nl.knmi.geoweb.backend.product.taf.Taf;
+import nl.knmi.geoweb.backend.product.taf.TafValidator;
+
+public class AugmentRuleRegistryTest {
+	private static final AugmentRuleRegistry REGISTRY = TafValidator.AUGMENT_RULES;
+
+	/* The field of a json path, as named by the registry */
+	private static String field(String path) {
+		return path.replaceFirst("^changegroups\\.\\d+\\.forecast\\.", "forecast.")
+				.replaceFirst("^changegroups\\.\\d+\\.", "changegroup.").replaceAll("\\.\\d+", "");
+	}
+
+	/* The fields of a TAF that were added or changed */
+	private static void collectChanges(JsonNode before, JsonNode after, String path, Set<String> changes) {
+		if (before != null && before.equals(after)) {
+			return;
+		}
+		if (before != null && after.isArray() && before.isArray() && before.size() == after.size()) {
+			for (int i = 0; i < after.size(); i++) {
+				collectChanges(before.get(i), after.get(i), path + "." + i, changes);
+			}
+			return;
+		}
+		if (before == null || !after.isObject() || !before.isObject()) {
+			changes.add(field(path));
+			return;
+		}
+		for (Iterator<Map.Entry<String, JsonNode>> fields = after.fields(); fields.hasNext();) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			collectChanges(before.get(field.getKey()), field.getValue(),
+					path.isEmpty() ? field.getKey() : path + "." + field.getKey(), changes);
+		}
+	}
+
+	/* Whether a rule only writes the fields it declares */
+	private static void assertWritesDeclaredFields(AugmentRuleRegistry.Registration registration, JsonNode taf,
+			AugmentRule rule) throws Exception {
+		JsonNode augmented = taf.deepCopy();
+		TafAugmenter.augment(augmented, rule);
+		Set<String> changes = new TreeSet<>();
+		collectChanges(taf, augmented, "", changes);
+		for (String change : changes) {
+			assertThat(registration.getName() + " writes " + change, registration.getWrites().contains(change),
+					is(true));
+		}
+	}
+
+	@Test
+	public void testRulesWriteDeclaredFields() throws Exception {
+		ObjectMapper om = new ObjectMapper();
+		for (String resource : new String[] { "./Taf_valid.json", "./Taf_invalid.json", "./TAFCAVOK.json" }) {
+			JsonNode taf = om.readTree(Tools.readResource(resource));
+			for (AugmentRuleRegistry.Registration registration : REGISTRY.getRegistrations()) {
+				if (registration.getFactory() != null) {
+					assertWritesDeclaredFields(registration, taf, registration.getFactory().get());
+				}
+			}
+		}
+
+		om.registerModule(new JavaTimeModule());
+		om.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		om.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+		for (String resource : new String[] { "./Taf_valid.json", "./TAFCAVOK.json" }) {
+			Taf typed = om.readValue(Tools.readResource(resource), Taf.class);
+			/* The rules derived from the typed TAF expect the json serialized from it */
+			JsonNode taf = om.readTree(typed.toJSON(om));
+			for (AugmentRuleRegistry.Registration registration : REGISTRY.getRegistrations()) {
+				if (registration.getTypedFactory() != null) {
+					assertWritesDeclaredFields(registration, taf, registration.getTypedFactory().apply(typed));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDependencies() {
+		/* Compares the wind written by the wind rules */
+		int nonRepeating = REGISTRY.indexOf("AugmentNonRepeatingChanges");
+		assertThat(REGISTRY.getDependencies(nonRepeating).contains(REGISTRY.indexOf("AugmentWindGust")), is(true));
+		assertThat(REGISTRY.getDependencies(REGISTRY.indexOf("AugmentWindEnoughChange")).isEmpty(), is(true));
+		/* Reads the clouds the clouds rule writes in */
+		assertThat(REGISTRY.getDependencies(REGISTRY.indexOf("AugmentCloudNeededRainOrModifierNecessary")),
+				is(Arrays.asList(REGISTRY.indexOf("AugmentAscendingHeightClouds"))));
+		/* The typed wind rule does not depend on the rules it replaces */
+		assertThat(REGISTRY.getDependencies(REGISTRY.indexOf("TafWindFacts")).isEmpty(), is(true));
+	}
+
+	@Test
+	public void testTypedRuleReplacesRules() throws Exception {
+		int windGust = REGISTRY.indexOf("AugmentWindGust");
+		int windEnoughChange = REGISTRY.indexOf("AugmentWindEnoughChange");
+		int windFacts = REGISTRY.indexOf("TafWindFacts");
+		AugmentRule[] rules = REGISTRY.createRules();
+		assertThat(rules[windGust] == null || rules[windEnoughChange] == null, is(false));
+		assertThat(rules[windFacts] == null, is(true));
+
+		ObjectMapper om = new ObjectMapper();
+		om.registerModule(new JavaTimeModule());
+		om.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		Taf taf = om.readValue(Tools.readResource("./Taf_valid.json"), Taf.class);
+		rules = REGISTRY.createRules(taf);
+		assertThat(rules[windGust] == null && rules[windEnoughChange] == null, is(true));
+		assertThat(rules[windFacts] instanceof TafWindFacts, is(true));
+
+		/* Without a unit the wind rules would fail, so they run themselves */
+		taf.getForecast().getWind().setUnit(null);
+		rules = REGISTRY.createRules(taf);
+		assertThat(rules[windGust] == null || rules[windEnoughChange] == null, is(false));
+		assertThat(rules[windFacts] == null, is(true));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTypedRuleAfterDependentRule() {
+		new AugmentRuleRegistry()
+				.register("AugmentWindGust", AugmentWindGust::new, AugmentRuleRegistry.fields("forecast.wind.gusts"),
+						AugmentRuleRegistry.fields("forecast.wind.gustFastEnough"))
+				.register("AugmentNonRepeatingChanges", AugmentNonRepeatingChanges::new,
+						AugmentRuleRegistry.fields("forecast.wind"), AugmentRuleRegistry.fields("forecast.weather"))
+				.registerTyped("TafWindFacts", TafWindFacts::of, AugmentRuleRegistry.fields("forecast.wind.gusts"),
+						AugmentRuleRegistry.fields("forecast.wind.gustFastEnough"), "AugmentWindGust");
+	}
+
+	@Test
+	public void testTimings() throws Exception {
+		AugmentTimings timings = new AugmentTimings(REGISTRY);
+		String taf = Tools.readResource("./Taf_valid.json");
+		for (int i = 0; i < 10; i++) {
+			long[] ruleNanos = timings.newRuleNanos();
+			TafAugmenter.augment(new ObjectMapper().readTree(taf), ruleNanos, REGISTRY.createRules());
+			timings.add(ruleNanos);
+		}
+		assertThat(timings.getTafs(), is(10L));
+		List<String> names = new ArrayList<>();
+		long nanos = 0;
+		for (Map.Entry<String, Long> rule : timings.getNanosByRule().entrySet()) {
+			names.add(rule.getKey());
+			nanos += rule.getValue();
+		}
+		assertThat(names.get(0), is("AugmentChangegroupsIncreasingInTime"));
+		assertThat(names.size(), is(REGISTRY.size()));
+		assertThat(nanos > 0, is(true));
+	}
+}
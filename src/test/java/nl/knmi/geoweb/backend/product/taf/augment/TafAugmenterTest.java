@@ -0,0 +1,230 @@
+package nl.knmi.geoweb.backend.product.taf.augment;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import nl.knmi.adaguc.tools.Tools;
+
+public class TafAugmenterTest {
+	/* The rules in the order of TafValidator.enrich */
+	private static AugmentRule[] rules() {
+		return new AugmentRule[] { new AugmentChangegroupsIncreasingInTime(),
+				new AugmentOverlappingBecomingChangegroups(), new AugmentChangegroupDuration(), new AugmentWindGust(),
+				new AugmentAscendingHeightClouds(), new AugmentEndTimes(), new AugmentVisibilityWeatherRequired(),
+				new AugmentWindEnoughChange(), new AugmentCloudNeededRainOrModifierNecessary(),
+				new AugmentMaxVisibility(), new AugmentNonRepeatingChanges(), new AugmentMaxVerticalVisibility() };
+	}
+
+	/* Runs each rule over the whole TAF before the next one */
+	private static String augmentOneByOne(JsonNode taf) {
+		try {
+			for (AugmentRule rule : rules()) {
+				TafAugmenter.augment(taf, rule);
+			}
+			return taf.toString();
+		} catch (Exception e) {
+			return e.getClass().getName();
+		}
+	}
+
+	private static String augment(JsonNode taf) {
+		try {
+			TafAugmenter.augment(taf, rules());
+			return taf.toString();
+		} catch (Exception e) {
+			return e.getClass().getName();
+		}
+	}
+
+	/* All TAFs with one field removed or replaced by another value */
+	private static List<JsonNode> mutations(JsonNode taf) {
+		JsonNodeFactory factory = JsonNodeFactory.instance;
+		JsonNode[] values = { null, factory.nullNode(), factory.textNode("x"), factory.numberNode(-1),
+				factory.numberNode(3000), factory.objectNode(), factory.arrayNode(), factory.textNode("FM"),
+				factory.textNode("PROB30"), factory.textNode("TEMPO"), factory.textNode("NSW"),
+				factory.textNode("2017-08-04T12:00:00Z") };
+		List<String> pointers = new ArrayList<>();
+		collectPointers(taf, "", pointers);
+		List<JsonNode> mutations = new ArrayList<>();
+		for (String pointer : pointers) {
+			int slash = pointer.lastIndexOf('/');
+			String field = pointer.substring(slash + 1);
+			for (JsonNode value : values) {
+				JsonNode mutation = taf.deepCopy();
+				JsonNode parent = mutation.at(pointer.substring(0, slash));
+				if (parent.isObject()) {
+					if (value == null) {
+						((ObjectNode) parent).remove(field);
+					} else {
+						((ObjectNode) parent).set(field, value);
+					}
+				} else if (value == null) {
+					((ArrayNode) parent).remove(Integer.parseInt(field));
+				} else {
+					((ArrayNode) parent).set(Integer.parseInt(field), value);
+				}
+				mutations.add(mutation);
+			}
+		}
+		return mutations;
+	}
+
+	private static void collectPointers(JsonNode node, String pointer, List<String> pointers) {
+		if (node.isObject()) {
+			node.fieldNames().forEachRemaining(field -> {
+				pointers.add(pointer + "/" + field);
+				collectPointers(node.get(field), pointer + "/" + field, pointers);
+			});
+		} else if (node.isArray()) {
+			for (int i = 0; i < node.size(); i++) {
+				pointers.add(pointer + "/" + i);
+				collectPointers(node.get(i), pointer + "/" + i, pointers);
+			}
+		}
+	}
+
+	@Test
+	public void testSameAsRulesOneByOne() throws Exception {
+		ObjectMapper om = new ObjectMapper();
+		int augmented = 0;
+		for (String resource : new String[] { "./Taf_valid.json", "./Taf_invalid.json", "./TAFCAVOK.json" }) {
+			JsonNode taf = om.readTree(Tools.readResource(resource));
+			List<JsonNode> tafs = mutations(taf);
+			tafs.add(taf);
+			for (JsonNode instance : tafs) {
+				String expected = augmentOneByOne(instance.deepCopy());
+				assertThat(instance.toString(), augment(instance.deepCopy()), is(expected));
+				if (expected.startsWith("{")) {
+					augmented++;
+				}
+			}
+		}
+		/* Most TAFs are augmented, some make a rule fail */
+		assertThat(augmented > 1000, is(true));
+	}
+
+	@Test
+	public void testRulesOutsideForecastAndChangegroups() throws Exception {
+		ObjectMapper om = new ObjectMapper();
+		String[] tafs = {
+				"{\"wind\":{\"gusts\":30,\"speed\":5},\"forecast\":{\"wind\":{\"gusts\":30,\"speed\":5}},\"validityStart\":\"2017-08-04T12:00:00Z\",\"validityEnd\":\"2017-08-05T18:00:00Z\"}",
+				"{\"changegroups\":{\"a\":{\"changeStart\":\"2017-08-04T12:00:00Z\",\"changeType\":\"BECMG\",\"forecast\":{\"wind\":{\"gusts\":30,\"speed\":5}}}},\"validityStart\":\"2017-08-04T12:00:00Z\",\"validityEnd\":\"2017-08-05T18:00:00Z\"}",
+				"{\"metadata\":{\"validityStart\":\"2017-08-04T12:00:00Z\",\"validityEnd\":\"2017-08-05T18:00:00Z\",\"clouds\":[{\"height\":5},{\"height\":3}]},\"changegroups\":[\"x\"]}" };
+		for (String taf : tafs) {
+			assertThat(taf, augment(om.readTree(taf)), is(augmentOneByOne(om.readTree(taf))));
+		}
+	}
+
+	/* Counts the lookups in the objects and arrays of a TAF */
+	private static class CountingNodeFactory extends JsonNodeFactory {
+		private static final long serialVersionUID = 1L;
+		private int visits = 0;
+
+		@Override
+		public ObjectNode objectNode() {
+			return new ObjectNode(this) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public JsonNode get(String fieldName) {
+					visits++;
+					return super.get(fieldName);
+				}
+
+				@Override
+				public JsonNode findValue(String fieldName) {
+					visits++;
+					return super.findValue(fieldName);
+				}
+
+				@Override
+				public List<JsonNode> findValues(String fieldName, List<JsonNode> foundSoFar) {
+					visits++;
+					return super.findValues(fieldName, foundSoFar);
+				}
+
+				@Override
+				public List<JsonNode> findParents(String fieldName, List<JsonNode> foundSoFar) {
+					visits++;
+					return super.findParents(fieldName, foundSoFar);
+				}
+
+				@Override
+				public Iterator<JsonNode> elements() {
+					visits++;
+					return super.elements();
+				}
+
+				@Override
+				public Iterator<Map.Entry<String, JsonNode>> fields() {
+					visits++;
+					return super.fields();
+				}
+			};
+		}
+
+		@Override
+		public ArrayNode arrayNode() {
+			return new ArrayNode(this) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public JsonNode findValue(String fieldName) {
+					visits++;
+					return super.findValue(fieldName);
+				}
+
+				@Override
+				public List<JsonNode> findValues(String fieldName, List<JsonNode> foundSoFar) {
+					visits++;
+					return super.findValues(fieldName, foundSoFar);
+				}
+
+				@Override
+				public List<JsonNode> findParents(String fieldName, List<JsonNode> foundSoFar) {
+					visits++;
+					return super.findParents(fieldName, foundSoFar);
+				}
+
+				@Override
+				public Iterator<JsonNode> elements() {
+					visits++;
+					return super.elements();
+				}
+			};
+		}
+	}
+
+	@Test
+	public void testFewerNodeVisits() throws Exception {
+		CountingNodeFactory factory = new CountingNodeFactory();
+		ObjectMapper om = new ObjectMapper().setNodeFactory(factory);
+		String tafString = Tools.readResource("./Taf_valid.json");
+
+		JsonNode oneByOne = om.readTree(tafString);
+		factory.visits = 0;
+		augmentOneByOne(oneByOne);
+		int oneByOneVisits = factory.visits;
+
+		JsonNode together = om.readTree(tafString);
+		factory.visits = 0;
+		augment(together);
+		int togetherVisits = factory.visits;
+
+		assertThat(together, is(oneByOne));
+		assertThat(togetherVisits + " visits instead of " + oneByOneVisits, togetherVisits < oneByOneVisits, is(true));
+	}
+}
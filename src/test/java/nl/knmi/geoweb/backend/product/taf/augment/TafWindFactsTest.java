@@ -0,0 +1,76 @@
+package nl.knmi.geoweb.backend.product.taf.augment;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import nl.knmi.adaguc.tools.Tools;
+import nl.knmi.geoweb.backend.product.taf.Taf;
+
+public class TafWindFactsTest {
+	private static ObjectMapper objectMapper() {
+		ObjectMapper om = new ObjectMapper();
+		om.registerModule(new JavaTimeModule());
+		om.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		om.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+		return om;
+	}
+
+	private static JsonNode augmentWithRules(JsonNode taf) throws Exception {
+		TafAugmenter.augment(taf, new AugmentWindGust(), new AugmentWindEnoughChange());
+		return taf;
+	}
+
+	private static JsonNode augmentWithFacts(JsonNode taf, TafWindFacts facts) throws Exception {
+		TafAugmenter.augment(taf, facts);
+		return taf;
+	}
+
+	/* The json of the TAF with the wind of the change groups changed */
+	private static Taf withWinds(ObjectMapper om, JsonNode taf, String... winds) throws Exception {
+		JsonNode copy = taf.deepCopy();
+		ArrayNode changegroups = (ArrayNode) copy.get("changegroups");
+		for (int i = 0; i < winds.length && i < changegroups.size(); i++) {
+			((ObjectNode) changegroups.get(i).get("forecast")).set("wind", om.readTree(winds[i]));
+		}
+		return om.treeToValue(copy, Taf.class);
+	}
+
+	@Test
+	public void testSameFactsAsRules() throws Exception {
+		ObjectMapper om = objectMapper();
+		JsonNode taf = om.readTree(Tools.readResource("./Taf_valid.json"));
+		Taf[] tafs = { om.treeToValue(taf, Taf.class),
+				withWinds(om, taf, "{\"direction\":\"VRB\",\"speed\":3,\"unit\":\"KT\"}",
+						"{\"direction\":240,\"speed\":12,\"gusts\":30,\"unit\":\"KT\"}",
+						"{\"direction\":250,\"speed\":4,\"unit\":\"MPS\"}"),
+				withWinds(om, taf, "{\"direction\":200,\"speed\":10,\"gusts\":15,\"unit\":\"KT\"}", "{\"speed\":10}",
+						"{}") };
+		for (Taf typed : tafs) {
+			JsonNode json = om.readTree(typed.toJSON(om));
+			TafWindFacts facts = TafWindFacts.of(typed);
+			assertThat(facts == null, is(false));
+			assertThat(json.toString(), augmentWithFacts(json.deepCopy(), facts), is(augmentWithRules(json.deepCopy())));
+		}
+	}
+
+	@Test
+	public void testRulesFailing() throws Exception {
+		ObjectMapper om = objectMapper();
+		JsonNode taf = om.readTree(Tools.readResource("./Taf_valid.json"));
+		/* The rules fail on wind without unit or with gusts but without speed */
+		assertThat(TafWindFacts.of(withWinds(om, taf, "{\"direction\":200,\"speed\":10}")), is(nullValue()));
+		assertThat(TafWindFacts.of(withWinds(om, taf, "{\"direction\":200,\"gusts\":30,\"unit\":\"KT\"}")),
+				is(nullValue()));
+	}
+}
@@ -0,0 +1,61 @@
+package nl.knmi.geoweb.backend.product.taf.converter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.time.ZonedDateTime;
+
+import org.junit.Test;
+
+import fi.fmi.avi.model.PartialOrCompleteTimeInstant;
+import fi.fmi.avi.model.PartialOrCompleteTimePeriod;
+import fi.fmi.avi.model.immutable.AerodromeImpl;
+import fi.fmi.avi.model.taf.immutable.TAFImpl;
+import fi.fmi.avi.model.taf.immutable.TAFReferenceImpl;
+import nl.knmi.geoweb.backend.aviation.AirportInfo;
+
+public class AerodromeRegistryTest {
+    private static AirportInfo schiphol() {
+        return new AirportInfo("EHAM", "Schiphol", 52.31, 4.76, -3);
+    }
+
+    @Test
+    public void testSameAirportInfoIsHit() {
+        AerodromeRegistry registry = new AerodromeRegistry();
+        AirportInfo airportInfo = schiphol();
+        AerodromeImpl aerodrome = registry.getAerodrome("EHAM", airportInfo);
+        assertThat(aerodrome.getDesignator(), is("EHAM"));
+        assertThat(registry.getAerodrome("EHAM", airportInfo) == aerodrome, is(true));
+        assertThat(registry.getAerodrome("EHRD", new AirportInfo("EHRD", "Rotterdam", 51.96, 4.44, -4)) == aerodrome,
+                is(false));
+    }
+
+    /* Tests that the aerodrome is built again once the airports are reloaded */
+    @Test
+    public void testReloadedAirportInfoIsRebuilt() {
+        AerodromeRegistry registry = new AerodromeRegistry();
+        AerodromeImpl aerodrome = registry.getAerodrome("EHAM", schiphol());
+        AirportInfo reloaded = schiphol();
+        AerodromeImpl rebuilt = registry.getAerodrome("EHAM", reloaded);
+        assertThat(rebuilt == aerodrome, is(false));
+        assertThat(registry.getAerodrome("EHAM", reloaded) == rebuilt, is(true));
+    }
+
+    @Test
+    public void testReferredReportSharesAerodrome() {
+        AerodromeRegistry registry = new AerodromeRegistry();
+        AirportInfo airportInfo = schiphol();
+        ZonedDateTime validityStart = ZonedDateTime.parse("2018-06-01T06:00:00Z");
+        TAFImpl.Builder taf = new TAFImpl.Builder();
+        taf.setReferredReport(new TAFReferenceImpl.Builder()
+                .setAerodrome(new AerodromeImpl.Builder().setDesignator("EHAM").build())
+                .setIssueTime(PartialOrCompleteTimeInstant.of(validityStart.minusHours(1)))
+                .setValidityTime(new PartialOrCompleteTimePeriod.Builder()
+                        .setStartTime(PartialOrCompleteTimeInstant.of(validityStart))
+                        .setEndTime(PartialOrCompleteTimeInstant.of(validityStart.plusHours(30))).build())
+                .build());
+        registry.setAerodrome(taf, "EHAM", airportInfo);
+        assertThat(taf.getAerodrome() == registry.getAerodrome("EHAM", airportInfo), is(true));
+        assertThat(taf.getReferredReport().get().getAerodrome() == taf.getAerodrome(), is(true));
+    }
+}